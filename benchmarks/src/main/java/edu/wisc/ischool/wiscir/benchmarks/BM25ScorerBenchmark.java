@@ -0,0 +1,72 @@
+package edu.wisc.ischool.wiscir.benchmarks;
+
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.BytesRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot loop of BM25SimilarityOriginal's scorer: score(freq, norm) over 1M postings with random
+ * frequencies and document lengths, with and without the precomputed length normalization table.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public class BM25ScorerBenchmark {
+
+    private static final int NUM_POSTINGS = 1 << 20;
+
+    @Param( { "65536", "0" } )
+    public int normCacheSize;
+
+    private Similarity.SimScorer scorer;
+    private float[] freqs;
+    private long[] norms;
+
+    @Setup( Level.Trial )
+    public void setup() {
+        BM25SimilarityOriginal sim = new BM25SimilarityOriginal( 1.2f, 0.75f, normCacheSize );
+        CollectionStatistics collectionStats = new CollectionStatistics( "text", 1000000, 1000000, 500000000L, 400000000L );
+        TermStatistics termStats = new TermStatistics( new BytesRef( "term" ), 1000, 2000 );
+        scorer = sim.scorer( 1f, collectionStats, termStats );
+        Random random = new Random( 0 );
+        freqs = new float[NUM_POSTINGS];
+        norms = new long[NUM_POSTINGS];
+        for ( int i = 0; i < NUM_POSTINGS; i++ ) {
+            freqs[i] = 1 + random.nextInt( 10 );
+            norms[i] = 1 + random.nextInt( 2000 );
+        }
+    }
+
+    @Benchmark
+    public float score() {
+        float sum = 0;
+        for ( int i = 0; i < NUM_POSTINGS; i++ ) {
+            sum += scorer.score( freqs[i], norms[i] );
+        }
+        return sum;
+    }
+
+}
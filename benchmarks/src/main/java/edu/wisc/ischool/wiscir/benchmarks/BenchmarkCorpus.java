@@ -0,0 +1,66 @@
+package edu.wisc.ischool.wiscir.benchmarks;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The corpus and in-memory indexes used by the benchmarks.
+ * <p>
+ * System properties:
+ * <ul>
+ *   <li>{@code bench.corpus} -- path of a trectext corpus file (default: example_corpus.gz in the project root);</li>
+ *   <li>{@code bench.scale} -- replicate the corpus this many times (with distinct docnos) to get a larger synthetic corpus (default: 10).</li>
+ * </ul>
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class BenchmarkCorpus {
+
+    public static List<TrecTextDocument> load() throws IOException {
+        String path = System.getProperty( "bench.corpus", "example_corpus.gz" );
+        if ( !Paths.get( path ).toFile().exists() ) {
+            path = Paths.get( "..", path ).toString(); // running from the benchmarks folder
+        }
+        int scale = Integer.parseInt( System.getProperty( "bench.scale", "10" ) );
+        List<TrecTextDocument> docs = new ArrayList<>();
+        try ( TrecTextReader reader = TrecTextReader.open( Paths.get( path ) ) ) {
+            TrecTextDocument doc;
+            while ( ( doc = reader.next() ) != null ) {
+                docs.add( doc );
+            }
+        }
+        List<TrecTextDocument> scaled = new ArrayList<>( docs.size() * scale );
+        for ( int i = 0; i < scale; i++ ) {
+            for ( TrecTextDocument doc : docs ) {
+                scaled.add( i == 0 ? doc : new TrecTextDocument( doc.getDocno() + "-" + i, doc.getTitle(), doc.getAuthor(), doc.getSource(), doc.getText() ) );
+            }
+        }
+        return scaled;
+    }
+
+    public static Directory index( List<TrecTextDocument> docs, Similarity similarity ) throws IOException {
+        Directory dir = new ByteBuffersDirectory();
+        IndexWriterConfig config = new IndexWriterConfig( LuceneBuildIndex.createAnalyzer() );
+        config.setSimilarity( similarity );
+        try ( IndexWriter ixwriter = new IndexWriter( dir, config ) ) {
+            for ( TrecTextDocument doc : docs ) {
+                ixwriter.addDocument( LuceneBuildIndex.createDocument( doc ) );
+            }
+            ixwriter.forceMerge( 1 );
+        }
+        return dir;
+    }
+
+}
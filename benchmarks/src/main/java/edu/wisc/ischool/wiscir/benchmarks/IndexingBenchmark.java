@@ -0,0 +1,60 @@
+package edu.wisc.ischool.wiscir.benchmarks;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest throughput of LuceneBuildIndex-style indexing (analysis + addDocument) into an in-memory directory.
+ * The score is the time to index the whole (scaled) corpus; divide the corpus size by it for docs/sec.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class IndexingBenchmark {
+
+    private List<TrecTextDocument> docs;
+
+    @Setup( Level.Trial )
+    public void setup() throws IOException {
+        docs = BenchmarkCorpus.load();
+    }
+
+    @Benchmark
+    public long addDocuments() throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig( LuceneBuildIndex.createAnalyzer() );
+        config.setSimilarity( new BM25SimilarityOriginal() );
+        try ( ByteBuffersDirectory dir = new ByteBuffersDirectory(); IndexWriter ixwriter = new IndexWriter( dir, config ) ) {
+            for ( TrecTextDocument doc : docs ) {
+                ixwriter.addDocument( LuceneBuildIndex.createDocument( doc ) );
+            }
+            ixwriter.commit();
+            return ixwriter.getDocStats().numDocs;
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package edu.wisc.ischool.wiscir.benchmarks;
+
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index reading as in LuceneReadFreqPosting, LuceneReadPositionPosting, and LuceneReadDocVector:
+ * traversing the postings of the 100 most frequent terms of the "text" field, and reading all term vectors.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public class PostingsBenchmark {
+
+    private static final String FIELD = "text";
+
+    private Directory dir;
+    private IndexReader index;
+    private List<BytesRef> terms;
+
+    @Setup( Level.Trial )
+    public void setup() throws IOException {
+        dir = BenchmarkCorpus.index( BenchmarkCorpus.load(), new BM25SimilarityOriginal() );
+        index = DirectoryReader.open( dir );
+        List<BytesRef> all = new ArrayList<>();
+        List<Integer> dfs = new ArrayList<>();
+        TermsEnum termsEnum = MultiTerms.getTerms( index, FIELD ).iterator();
+        BytesRef term;
+        while ( ( term = termsEnum.next() ) != null ) {
+            all.add( BytesRef.deepCopyOf( term ) );
+            dfs.add( termsEnum.docFreq() );
+        }
+        List<Integer> order = new ArrayList<>();
+        for ( int i = 0; i < all.size(); i++ ) {
+            order.add( i );
+        }
+        order.sort( ( a, b ) -> Integer.compare( dfs.get( b ), dfs.get( a ) ) );
+        terms = new ArrayList<>();
+        for ( int i = 0; i < Math.min( 100, order.size() ); i++ ) {
+            terms.add( all.get( order.get( i ) ) );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() throws IOException {
+        index.close();
+        dir.close();
+    }
+
+    @Benchmark
+    public long freqPostings() throws IOException {
+        long sum = 0;
+        for ( BytesRef term : terms ) {
+            PostingsEnum posting = MultiTerms.getTermPostingsEnum( index, FIELD, term, PostingsEnum.FREQS );
+            while ( posting.nextDoc() != PostingsEnum.NO_MORE_DOCS ) {
+                sum += posting.freq();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long positionPostings() throws IOException {
+        long sum = 0;
+        for ( BytesRef term : terms ) {
+            PostingsEnum posting = MultiTerms.getTermPostingsEnum( index, FIELD, term, PostingsEnum.POSITIONS );
+            while ( posting.nextDoc() != PostingsEnum.NO_MORE_DOCS ) {
+                int freq = posting.freq();
+                for ( int i = 0; i < freq; i++ ) {
+                    sum += posting.nextPosition();
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long termVectors() throws IOException {
+        long sum = 0;
+        PostingsEnum positions = null;
+        for ( int docid = 0; docid < index.maxDoc(); docid++ ) {
+            Terms vector = index.getTermVector( docid, FIELD );
+            TermsEnum termsEnum = vector.iterator();
+            while ( termsEnum.next() != null ) {
+                positions = termsEnum.postings( positions, PostingsEnum.POSITIONS );
+                positions.nextDoc();
+                int freq = positions.freq();
+                for ( int i = 0; i < freq; i++ ) {
+                    sum += positions.nextPosition();
+                }
+            }
+        }
+        return sum;
+    }
+
+}
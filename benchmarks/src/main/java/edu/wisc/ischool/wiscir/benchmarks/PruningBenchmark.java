@@ -0,0 +1,132 @@
+package edu.wisc.ischool.wiscir.benchmarks;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 search of long queries (document titles) with block-max WAND dynamic pruning
+ * (totalHitsThreshold = 10, so non-competitive blocks are skipped as soon as 10 hits are collected)
+ * versus exhaustive scoring (totalHitsThreshold = Integer.MAX_VALUE).
+ * The number of documents scored per query in both modes is printed at setup.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public class PruningBenchmark {
+
+    private static final int NUM_QUERIES = 50;
+
+    @Param( { "BM25Original", "LuceneBM25" } )
+    public String similarity;
+
+    private Directory dir;
+    private IndexReader index;
+    private IndexSearcher searcher;
+    private List<Query> queries;
+
+    @Setup( Level.Trial )
+    public void setup() throws IOException, ParseException {
+        Similarity sim = SearchBenchmark.createSimilarity( similarity );
+        List<TrecTextDocument> docs = BenchmarkCorpus.load();
+        dir = BenchmarkCorpus.index( docs, sim );
+        index = DirectoryReader.open( dir );
+        searcher = new IndexSearcher( index );
+        searcher.setSimilarity( sim );
+        QueryParser parser = new QueryParser( "text", LuceneBuildIndex.createAnalyzer() );
+        queries = new ArrayList<>();
+        for ( int i = 0; i < docs.size() && queries.size() < NUM_QUERIES; i++ ) {
+            if ( docs.get( i ).getTitle().trim().split( "\\s+" ).length >= 6 ) {
+                queries.add( parser.parse( QueryParser.escape( docs.get( i ).getTitle() ) ) );
+            }
+        }
+        long pruned = countScored( 10 );
+        long exhaustive = countScored( Integer.MAX_VALUE );
+        System.out.printf( "%n%s: %d queries, documents scored per query: exhaustive=%.1f pruned=%.1f (%.1f%%)%n",
+                similarity, queries.size(), 1.0 * exhaustive / queries.size(), 1.0 * pruned / queries.size(), 100.0 * pruned / exhaustive );
+    }
+
+    private long countScored( int totalHitsThreshold ) throws IOException {
+        long[] count = new long[1];
+        for ( Query query : queries ) {
+            Collector collector = new FilterCollector( TopScoreDocCollector.create( 10, totalHitsThreshold ) ) {
+                @Override
+                public LeafCollector getLeafCollector( LeafReaderContext context ) throws IOException {
+                    return new FilterLeafCollector( super.getLeafCollector( context ) ) {
+                        @Override
+                        public void collect( int doc ) throws IOException {
+                            count[0]++;
+                            super.collect( doc );
+                        }
+                    };
+                }
+            };
+            searcher.search( query, collector );
+        }
+        return count[0];
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() throws IOException {
+        index.close();
+        dir.close();
+    }
+
+    @Benchmark
+    public float pruned() throws IOException {
+        return search( 10 );
+    }
+
+    @Benchmark
+    public float exhaustive() throws IOException {
+        return search( Integer.MAX_VALUE );
+    }
+
+    private float search( int totalHitsThreshold ) throws IOException {
+        float sum = 0;
+        for ( Query query : queries ) {
+            TopScoreDocCollector collector = TopScoreDocCollector.create( 10, totalHitsThreshold );
+            searcher.search( query, collector );
+            sum += collector.topDocs().scoreDocs.length;
+        }
+        return sum;
+    }
+
+}
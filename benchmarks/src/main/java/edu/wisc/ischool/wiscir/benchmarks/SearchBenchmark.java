@@ -0,0 +1,110 @@
+package edu.wisc.ischool.wiscir.benchmarks;
+
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndexSearcher.search (top 10) as in LuceneSearchExample, comparing BM25SimilarityOriginal
+ * (with and without the precomputed length normalization table) with Lucene's BM25Similarity.
+ * Each similarity searches an index built with the same similarity, since they encode norms differently.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public class SearchBenchmark {
+
+    private static final String[] QUERIES = {
+            "query reformulation",
+            "search engine",
+            "relevance feedback language model",
+            "user behavior click models web search",
+            "evaluation of information retrieval systems using test collections",
+            "learning to rank",
+            "query expansion pseudo relevance feedback",
+            "collaborative filtering recommendation",
+    };
+
+    @Param( { "BM25Original", "BM25OriginalNoCache", "LuceneBM25" } )
+    public String similarity;
+
+    private Directory dir;
+    private IndexReader index;
+    private IndexSearcher searcher;
+    private List<Query> queries;
+
+    @Setup( Level.Trial )
+    public void setup() throws IOException, ParseException {
+        Similarity sim = createSimilarity( similarity );
+        dir = BenchmarkCorpus.index( BenchmarkCorpus.load(), sim );
+        index = DirectoryReader.open( dir );
+        searcher = new IndexSearcher( index );
+        searcher.setSimilarity( sim );
+        QueryParser parser = new QueryParser( "text", LuceneBuildIndex.createAnalyzer() );
+        queries = new ArrayList<>();
+        for ( String qstr : QUERIES ) {
+            queries.add( parser.parse( qstr ) );
+        }
+    }
+
+    static Similarity createSimilarity( String name ) {
+        switch ( name ) {
+            case "BM25Original":
+                return new BM25SimilarityOriginal();
+            case "BM25OriginalNoCache":
+                return new BM25SimilarityOriginal( 1.2f, 0.75f, 0 );
+            case "LuceneBM25":
+                return new BM25Similarity();
+            default:
+                throw new IllegalArgumentException( "unknown similarity: " + name );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() throws IOException {
+        index.close();
+        dir.close();
+    }
+
+    @Benchmark
+    public float search() throws IOException {
+        float sum = 0;
+        for ( Query query : queries ) {
+            sum += searcher.search( query, 10 ).scoreDocs.length;
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,116 @@
+package edu.wisc.ischool.wiscir.corpus;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lists the corpus files of a collection given as a file, a directory, or a glob pattern, e.g.,
+ * <pre>
+ * /data/clueweb/en0001/00.warc.gz       a single file
+ * /data/trec45                          all files in the directory and its subdirectories
+ * /data/trec45/**&#47;*.gz                 files matching the pattern (see FileSystem.getPathMatcher)
+ * </pre>
+ * In a glob pattern, "**&#47;" matches zero or more directories, so /data/trec45/**&#47;*.gz also matches the files
+ * directly in /data/trec45 (the JDK glob alone requires at least one directory there). Hidden files and directories
+ * (starting with ".") are skipped, except the directory given in the pattern itself. The files are sorted by path,
+ * so that the order is reproducible.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class CorpusFiles {
+
+    private static final String GLOB_CHARS = "*?[{";
+
+    /**
+     * @param pattern A file, a directory, or a glob pattern.
+     * @return The corpus files (an empty list if a glob pattern matches nothing).
+     * @throws NoSuchFileException if the pattern is neither a glob pattern nor an existing file or directory.
+     * @throws IOException
+     */
+    public static List<Path> list( String pattern ) throws IOException {
+        int glob = -1;
+        for ( int i = 0; i < pattern.length() && glob < 0; i++ ) {
+            if ( GLOB_CHARS.indexOf( pattern.charAt( i ) ) >= 0 ) {
+                glob = i;
+            }
+        }
+        if ( glob < 0 ) {
+            Path path = Paths.get( pattern );
+            if ( Files.isRegularFile( path ) ) {
+                return List.of( path );
+            }
+            if ( !Files.isDirectory( path ) ) {
+                throw new NoSuchFileException( pattern );
+            }
+            return walk( path, null );
+        }
+        // walk from the deepest directory without glob characters
+        int sep = Math.max( pattern.lastIndexOf( '/', glob ), pattern.lastIndexOf( '\\', glob ) );
+        Path base = sep < 0 ? Paths.get( "" ) : Paths.get( sep == 0 ? "/" : pattern.substring( 0, sep ) );
+        if ( !Files.isDirectory( base ) ) {
+            return List.of();
+        }
+        List<PathMatcher> matchers = new ArrayList<>();
+        for ( String variant : expandDoubleStars( pattern, 0 ) ) {
+            matchers.add( FileSystems.getDefault().getPathMatcher( "glob:" + variant ) );
+        }
+        return walk( base, p -> matchers.stream().anyMatch( matcher -> matcher.matches( p ) ) );
+    }
+
+    /**
+     * @return The pattern and its variants with any of the "**&#47;" segments (from the given index on) removed,
+     * so that each of them can also match zero directories.
+     */
+    private static Set<String> expandDoubleStars( String pattern, int from ) {
+        int idx = pattern.indexOf( "**/", from );
+        if ( idx < 0 ) {
+            idx = pattern.indexOf( "**\\", from );
+        }
+        if ( idx < 0 ) {
+            return Collections.singleton( pattern );
+        }
+        Set<String> variants = new LinkedHashSet<>( expandDoubleStars( pattern, idx + 3 ) );
+        variants.addAll( expandDoubleStars( pattern.substring( 0, idx ) + pattern.substring( idx + 3 ), idx ) );
+        return variants;
+    }
+
+    private static List<Path> walk( Path dir, PathMatcher matcher ) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree( dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory( Path subdir, BasicFileAttributes attrs ) {
+                return !subdir.equals( dir ) && isHidden( subdir ) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) {
+                if ( Files.isRegularFile( file ) && !isHidden( file ) && ( matcher == null || matcher.matches( file ) ) ) {
+                    files.add( file );
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+        Collections.sort( files );
+        return files;
+    }
+
+    private static boolean isHidden( Path path ) {
+        Path name = path.getFileName();
+        return name != null && name.toString().startsWith( "." );
+    }
+
+}
@@ -0,0 +1,83 @@
+package edu.wisc.ischool.wiscir.corpus;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the files in a tar archive as one concatenated stream (each file is decompressed by its extension).
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+class TarEntriesInputStream extends InputStream {
+
+    private final TarArchiveInputStream tar;
+    private InputStream current; // the (decompressed) content of the current entry; null before the first or after the last entry
+    private boolean finished = false;
+
+    TarEntriesInputStream( InputStream in ) {
+        this.tar = new TarArchiveInputStream( in );
+    }
+
+    private boolean nextEntry() throws IOException {
+        if ( current != null ) {
+            current.close();
+            current = null;
+        }
+        TarArchiveEntry entry;
+        while ( ( entry = tar.getNextTarEntry() ) != null ) {
+            if ( entry.isFile() && tar.canReadEntryData( entry ) ) {
+                // closing an entry's decompressor must not close the archive
+                InputStream entryStream = new FilterInputStream( tar ) {
+                    @Override
+                    public void close() {
+                    }
+                };
+                current = TrecTextReader.decode( entryStream, entry.getName() );
+                return true;
+            }
+        }
+        finished = true;
+        return false;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+        if ( len == 0 ) {
+            return 0;
+        }
+        while ( !finished ) {
+            if ( current != null ) {
+                int n = current.read( b, off, len );
+                if ( n >= 0 ) {
+                    return n;
+                }
+            }
+            nextEntry();
+        }
+        return -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read( b, 0, 1 );
+        return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if ( current != null ) {
+                current.close();
+            }
+        } finally {
+            tar.close();
+        }
+    }
+
+}
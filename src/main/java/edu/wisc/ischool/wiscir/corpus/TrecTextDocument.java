@@ -0,0 +1,51 @@
+package edu.wisc.ischool.wiscir.corpus;
+
+/**
+ * A document parsed from a trectext format corpus file.
+ * Missing fields are represented by empty strings.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class TrecTextDocument {
+
+    private final String docno;
+    private final String title;
+    private final String author;
+    private final String source;
+    private final String text;
+
+    public TrecTextDocument( String docno, String title, String author, String source, String text ) {
+        this.docno = docno;
+        this.title = title;
+        this.author = author;
+        this.source = source;
+        this.text = text;
+    }
+
+    public String getDocno() {
+        return docno;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "TrecTextDocument(" + docno + ")";
+    }
+
+}
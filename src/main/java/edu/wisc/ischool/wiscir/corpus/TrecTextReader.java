@@ -0,0 +1,234 @@
+package edu.wisc.ischool.wiscir.corpus;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.z.ZCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A streaming reader for trectext format corpus files.
+ * <p>
+ * Unlike matching a regular expression over the whole corpus text, this reader scans the input once
+ * through a fixed-size char buffer and only keeps the text of the current &lt;DOC&gt; record in memory.
+ * The memory footprint therefore depends on the largest document, not on the size of the corpus.
+ * <p>
+ * Usage (similar to Lucene's TermsEnum, {@link #next()} returns null when there are no more documents):
+ * <pre>
+ * try ( TrecTextReader reader = TrecTextReader.open( path ) ) {
+ *     TrecTextDocument doc;
+ *     while ( ( doc = reader.next() ) != null ) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * Tags are matched case-insensitively. A record without &lt;/DOC&gt; is discarded when the next &lt;DOC&gt; starts.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class TrecTextReader implements Closeable {
+
+    private static final char[] DOC_START = "<DOC>".toCharArray();
+    private static final char[] DOC_END = "</DOC>".toCharArray();
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // the record buffer is shrunk back after an unusually large document so that it does not hold on to the memory
+    private static final int MAX_RETAINED_CAPACITY = 1 << 22;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+
+    private StringBuilder record = new StringBuilder( 1 << 14 );
+
+    /**
+     * @param in A reader of the trectext corpus; it will be closed when this reader is closed.
+     */
+    public TrecTextReader( Reader in ) {
+        this.in = in;
+    }
+
+    /**
+     * @param in An input stream of the trectext corpus (UTF-8); it will be closed when this reader is closed.
+     */
+    public TrecTextReader( InputStream in ) {
+        this( new InputStreamReader( in, StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Open a trectext corpus file. Compressed files are decompressed on the fly by their extensions:
+     * ".gz" (gzip), ".bz2" (bzip2), ".xz" (xz), and ".z" (Unix compress, used by some TREC disks).
+     * A tar archive (".tar", ".tgz", or a compressed ".tar") is read as the concatenation of its files, each of which
+     * can also be compressed (e.g., a tar of .gz files).
+     *
+     * @param path Path of the corpus file.
+     * @return A reader of the corpus file.
+     * @throws IOException
+     */
+    public static TrecTextReader open( Path path ) throws IOException {
+        InputStream instream = new BufferedInputStream( new FileInputStream( path.toFile() ), BUFFER_SIZE );
+        try {
+            return new TrecTextReader( decode( instream, path.getFileName().toString() ) );
+        } catch ( IOException | RuntimeException e ) {
+            instream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decompress (and unpack) a corpus stream by the file name's extensions.
+     */
+    static InputStream decode( InputStream in, String name ) throws IOException {
+        String lower = name.toLowerCase( Locale.ROOT );
+        if ( lower.endsWith( ".tgz" ) ) {
+            return new TarEntriesInputStream( new GZIPInputStream( in, BUFFER_SIZE ) );
+        }
+        boolean compressed = true;
+        if ( lower.endsWith( ".gz" ) ) {
+            in = new GZIPInputStream( in, BUFFER_SIZE );
+        } else if ( lower.endsWith( ".bz2" ) ) {
+            in = new BZip2CompressorInputStream( in, true );
+        } else if ( lower.endsWith( ".xz" ) ) {
+            in = new XZCompressorInputStream( in, true );
+        } else if ( lower.endsWith( ".z" ) ) {
+            in = new ZCompressorInputStream( in );
+        } else {
+            compressed = false;
+        }
+        String base = compressed ? lower.substring( 0, lower.lastIndexOf( '.' ) ) : lower;
+        return base.endsWith( ".tar" ) ? new TarEntriesInputStream( in ) : in;
+    }
+
+    /**
+     * Read the next document.
+     *
+     * @return The next document in the corpus; or null if there are no more documents.
+     * @throws IOException
+     */
+    public TrecTextDocument next() throws IOException {
+        if ( !skipTo( DOC_START ) ) {
+            return null;
+        }
+        if ( record.capacity() > MAX_RETAINED_CAPACITY ) {
+            record = new StringBuilder( 1 << 14 );
+        }
+        record.setLength( 0 );
+        int matchedEnd = 0;
+        int matchedStart = 0;
+        while ( true ) {
+            if ( pos == limit && !fill() ) {
+                return null; // truncated record at the end of the input
+            }
+            char c = buffer[pos++];
+            record.append( c );
+            matchedEnd = advance( DOC_END, matchedEnd, c );
+            if ( matchedEnd == DOC_END.length ) {
+                record.setLength( record.length() - DOC_END.length );
+                return parse( record.toString() );
+            }
+            matchedStart = advance( DOC_START, matchedStart, c );
+            if ( matchedStart == DOC_START.length ) {
+                // the previous record was not closed; start over from the new one
+                record.setLength( 0 );
+                matchedStart = 0;
+                matchedEnd = 0;
+            }
+        }
+    }
+
+    /**
+     * Consume the input until the end of the next occurrence of the tag.
+     */
+    private boolean skipTo( char[] tag ) throws IOException {
+        int matched = 0;
+        while ( true ) {
+            if ( pos == limit && !fill() ) {
+                return false;
+            }
+            matched = advance( tag, matched, buffer[pos++] );
+            if ( matched == tag.length ) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Incrementally match a tag. Tags start with '&lt;' and do not contain another '&lt;',
+     * so a mismatch only needs to check whether the current char starts a new match.
+     */
+    private static int advance( char[] tag, int matched, char c ) {
+        if ( Character.toUpperCase( c ) == tag[matched] ) {
+            return matched + 1;
+        }
+        return c == '<' ? 1 : 0;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read( buffer, 0, buffer.length );
+        while ( n == 0 ) {
+            n = in.read( buffer, 0, buffer.length );
+        }
+        if ( n < 0 ) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private static TrecTextDocument parse( String rec ) {
+        return new TrecTextDocument(
+                field( rec, "DOCNO" ),
+                field( rec, "TITLE" ),
+                field( rec, "AUTHOR" ),
+                field( rec, "SOURCE" ),
+                field( rec, "TEXT" )
+        );
+    }
+
+    /**
+     * Extract the trimmed content of the first &lt;tag&gt;...&lt;/tag&gt; element in the record;
+     * or an empty string if the element does not exist.
+     */
+    private static String field( String rec, String tag ) {
+        int start = indexOfTag( rec, "<" + tag + ">", 0 );
+        if ( start < 0 ) {
+            return "";
+        }
+        start += tag.length() + 2;
+        int end = indexOfTag( rec, "</" + tag + ">", start );
+        if ( end < 0 ) {
+            end = rec.length();
+        }
+        return rec.substring( start, end ).trim();
+    }
+
+    private static int indexOfTag( String rec, String tag, int from ) {
+        int last = rec.length() - tag.length();
+        for ( int i = rec.indexOf( '<', from ); i >= 0 && i <= last; i = rec.indexOf( '<', i + 1 ) ) {
+            if ( rec.regionMatches( true, i, tag, 0, tag.length() ) ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
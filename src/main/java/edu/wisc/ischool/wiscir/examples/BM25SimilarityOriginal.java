@@ -27,6 +27,8 @@ import org.apache.lucene.util.BytesRef;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The original version of BM25 Similarity you can find in textbooks.
@@ -34,29 +36,69 @@ import java.util.List;
  * 1. Storing and using the full accuracy document length;
  * 2. Using the original BM25 IDF function but set the min to 0;
  * 3. Multiplying term weights by (k1+1), which was ignored in Lucene (but does not affect ranking).
+ * <p>
+ * Lucene's BM25Similarity precomputes the length normalization factor for its 256 possible (lossy) norm values.
+ * Exact lengths have no such small domain, so this class precomputes the factor 1 / (k1 * (1 - b + b * dl / avgdl))
+ * for every length below a configurable bound, once per avgdl, and shares the table across all query terms.
+ * Longer documents fall back to computing the factor per posting. Scores are identical either way.
+ * <p>
+ * Lucene's block-max WAND (used by IndexSearcher when it only needs the top hits, see
+ * {@link org.apache.lucene.search.TopScoreDocCollector#create(int, int)}) skips blocks of postings whose maximum score
+ * cannot make the top-k. The maximum is computed by calling {@link SimScorer#score(float, long)} on the competitive
+ * (freq, norm) pairs stored with each block at indexing time, which hold whatever {@link #computeNorm(FieldInvertState)}
+ * returns, i.e., the exact lengths here. So the bounds are exact as long as the score never decreases with freq and
+ * never increases with the length, which the float expression in BM25Scorer.score() guarantees for cached and
+ * uncached factors alike (they use the same expression).
  */
 public class BM25SimilarityOriginal extends Similarity {
 
+    /**
+     * The default number of document lengths (0, 1, ..., 65535) with precomputed length normalization factors.
+     */
+    public static final int DEFAULT_NORM_CACHE_SIZE = 1 << 16;
+
+    // at most this many avgdl values (i.e., fields) have cached tables; the cache is cleared when it grows beyond
+    private static final int MAX_CACHED_AVGDL = 16;
+
     private final float k1;
     private final float b;
+    private final int normCacheSize;
+    private final Map<Float, float[]> normCache = new ConcurrentHashMap<>();
 
     /**
      * BM25 with the supplied parameter values.
      *
-     * @param k1 Controls non-linear term frequency normalization (saturation).
-     * @param b  Controls to what degree document length normalizes tf values.
+     * @param k1            Controls non-linear term frequency normalization (saturation).
+     * @param b             Controls to what degree document length normalizes tf values.
+     * @param normCacheSize Precompute the length normalization factors for document lengths smaller than this value; 0 to disable.
      * @throws IllegalArgumentException if {@code k1} is infinite or negative, or if {@code b} is
      *                                  not within the range {@code [0..1]}
      */
-    public BM25SimilarityOriginal( float k1, float b ) {
+    public BM25SimilarityOriginal( float k1, float b, int normCacheSize ) {
         if ( !Float.isFinite( k1 ) || k1 < 0 ) {
             throw new IllegalArgumentException( "illegal k1 value: " + k1 + ", must be a non-negative finite value" );
         }
         if ( Float.isNaN( b ) || b < 0 || b > 1 ) {
             throw new IllegalArgumentException( "illegal b value: " + b + ", must be between 0 and 1" );
         }
+        if ( normCacheSize < 0 ) {
+            throw new IllegalArgumentException( "illegal normCacheSize value: " + normCacheSize + ", must be non-negative" );
+        }
         this.k1 = k1;
         this.b = b;
+        this.normCacheSize = normCacheSize;
+    }
+
+    /**
+     * BM25 with the supplied parameter values.
+     *
+     * @param k1 Controls non-linear term frequency normalization (saturation).
+     * @param b  Controls to what degree document length normalizes tf values.
+     * @throws IllegalArgumentException if {@code k1} is infinite or negative, or if {@code b} is
+     *                                  not within the range {@code [0..1]}
+     */
+    public BM25SimilarityOriginal( float k1, float b ) {
+        this( k1, b, DEFAULT_NORM_CACHE_SIZE );
     }
 
     /**
@@ -96,6 +138,15 @@ public class BM25SimilarityOriginal extends Similarity {
 
     @Override
     public final long computeNorm( FieldInvertState state ) {
+        return fieldLength( state );
+    }
+
+    /**
+     * The full-precision field length stored as norm (instead of Lucene's lossy one-byte encoding).
+     * Other similarities (e.g., {@link LMDirichletSimilarityOriginal}) use the same encoding so that
+     * an index built with any of them can be searched with the others.
+     */
+    public static long fieldLength( FieldInvertState state ) {
         final int numTerms;
         if ( state.getIndexOptions() == IndexOptions.DOCS && state.getIndexCreatedVersionMajor() >= 8 ) {
             numTerms = state.getUniqueTermCount();
@@ -164,7 +215,29 @@ public class BM25SimilarityOriginal extends Similarity {
     public final SimScorer scorer( float boost, CollectionStatistics collectionStats, TermStatistics... termStats ) {
         Explanation idf = termStats.length == 1 ? idfExplain( collectionStats, termStats[0] ) : idfExplain( collectionStats, termStats );
         float avgdl = avgFieldLength( collectionStats );
-        return new BM25Scorer( boost, k1, b, idf, avgdl );
+        return new BM25Scorer( boost, k1, b, idf, avgdl, normInverseCache( avgdl ) );
+    }
+
+    /**
+     * The precomputed 1 / (k1 * (1 - b + b * dl / avgdl)) for dl = 0, 1, ..., normCacheSize - 1.
+     */
+    private float[] normInverseCache( float avgdl ) {
+        if ( normCacheSize == 0 ) {
+            return new float[0];
+        }
+        float[] cache = normCache.get( avgdl );
+        if ( cache == null ) {
+            cache = new float[normCacheSize];
+            for ( int dl = 0; dl < cache.length; dl++ ) {
+                // must be the same expression as in BM25Scorer.score() so that the scores are identical
+                cache[dl] = 1f / ( k1 * ( ( 1 - b ) + b * (long) dl / avgdl ) );
+            }
+            if ( normCache.size() >= MAX_CACHED_AVGDL ) {
+                normCache.clear();
+            }
+            normCache.put( avgdl, cache );
+        }
+        return cache;
     }
 
     /**
@@ -202,13 +275,19 @@ public class BM25SimilarityOriginal extends Similarity {
          */
         private final float weight;
 
-        BM25Scorer( float boost, float k1, float b, Explanation idf, float avgdl ) {
+        /**
+         * precomputed normInverse by document length (shared by all query terms with the same avgdl)
+         */
+        private final float[] normInverseCache;
+
+        BM25Scorer( float boost, float k1, float b, Explanation idf, float avgdl, float[] normInverseCache ) {
             this.boost = boost;
             this.idf = idf;
             this.avgdl = avgdl;
             this.k1 = k1;
             this.b = b;
             this.weight = ( k1 + 1 ) * boost * idf.getValue().floatValue();
+            this.normInverseCache = normInverseCache;
         }
 
         @Override
@@ -222,7 +301,9 @@ public class BM25SimilarityOriginal extends Similarity {
             // x -> 1 + x and x -> 1 - 1/x.
             // Finally we expand weight * (1 - 1 / (1 + freq * 1/norm)) to
             // weight - weight / (1 + freq * 1/norm), which runs slightly faster.
-            float normInverse = 1f / ( k1 * ( ( 1 - b ) + b * encodedNorm / avgdl ) );
+            float normInverse = encodedNorm < normInverseCache.length
+                    ? normInverseCache[(int) encodedNorm]
+                    : 1f / ( k1 * ( ( 1 - b ) + b * encodedNorm / avgdl ) );
             return weight - weight / ( 1f + freq * normInverse );
         }
 
@@ -243,11 +324,7 @@ public class BM25SimilarityOriginal extends Similarity {
             subs.add( freq );
             subs.add( Explanation.match( k1, "k1, term saturation parameter" ) );
             subs.add( Explanation.match( b, "b, length normalization parameter" ) );
-            if ( ( norm & 0xFF ) > 39 ) {
-                subs.add( Explanation.match( (float) norm, "dl, length of field (approximate)" ) );
-            } else {
-                subs.add( Explanation.match( (float) norm, "dl, length of field" ) );
-            }
+            subs.add( Explanation.match( (float) norm, "dl, length of field" ) );
             subs.add( Explanation.match( avgdl, "avgdl, average length of field" ) );
             float normInverse = 1f / ( k1 * ( ( 1 - b ) + b * (float) norm / avgdl ) );
             return Explanation.match(
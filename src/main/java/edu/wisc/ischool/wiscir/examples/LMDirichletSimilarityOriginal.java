@@ -0,0 +1,101 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.TermStatistics;
+
+/**
+ * Query likelihood with Dirichlet smoothing using the full accuracy document length.
+ * It was adapted from Lucene's LMDirichletSimilarity with the following changes:
+ * 1. Storing and using the full accuracy document length (same as {@link BM25SimilarityOriginal});
+ * 2. P(w|C) and 1/P(w|C) are precomputed once per query term, so scoring a posting takes one division and one log.
+ * <p>
+ * Each matched query term contributes log( (freq + mu * P(w|C)) / ((dl + mu) * P(w|C)) ), i.e.,
+ * log( 1 + freq / (mu * P(w|C)) ) + log( mu / (dl + mu) ), the rank-equivalent form of log P(w|D).
+ * As in Lucene, negative term scores are set to 0 because Lucene requires non-negative scores.
+ */
+public class LMDirichletSimilarityOriginal extends LMSimilarityOriginal {
+
+    private final float mu;
+
+    /**
+     * @param mu The Dirichlet prior.
+     * @throws IllegalArgumentException if {@code mu} is infinite or negative
+     */
+    public LMDirichletSimilarityOriginal( float mu ) {
+        if ( !Float.isFinite( mu ) || mu < 0 ) {
+            throw new IllegalArgumentException( "illegal mu value: " + mu + ", must be a non-negative finite value" );
+        }
+        this.mu = mu;
+    }
+
+    /**
+     * Dirichlet smoothing with {@code mu = 2000}.
+     */
+    public LMDirichletSimilarityOriginal() {
+        this( 2000 );
+    }
+
+    @Override
+    public final SimScorer scorer( float boost, CollectionStatistics collectionStats, TermStatistics... termStats ) {
+        return new DirichletScorer( boost, mu, collectionProbability( collectionStats, termStats ) );
+    }
+
+    private static class DirichletScorer extends SimScorer {
+
+        /**
+         * query boost
+         */
+        private final float boost;
+
+        /**
+         * the Dirichlet prior
+         */
+        private final float mu;
+
+        /**
+         * P(w|C)
+         */
+        private final Explanation pwc;
+
+        /**
+         * 1 / P(w|C)
+         */
+        private final double invPwc;
+
+        DirichletScorer( float boost, float mu, Explanation pwc ) {
+            this.boost = boost;
+            this.mu = mu;
+            this.pwc = pwc;
+            this.invPwc = 1D / pwc.getValue().doubleValue();
+        }
+
+        @Override
+        public float score( float freq, long encodedNorm ) {
+            // log( 1 + freq / (mu * pwc) ) + log( mu / (dl + mu) ) = log( (mu + freq / pwc) / (dl + mu) )
+            double score = Math.log( ( mu + freq * invPwc ) / ( encodedNorm + mu ) );
+            return score > 0 ? boost * (float) score : 0;
+        }
+
+        @Override
+        public Explanation explain( Explanation freq, long encodedNorm ) {
+            float score = score( freq.getValue().floatValue(), encodedNorm );
+            return Explanation.match( score, "score(freq=" + freq.getValue() + "), computed as boost * max( 0, log( (freq + mu * P(w|C)) / ((dl + mu) * P(w|C)) ) ) from:",
+                    Explanation.match( boost, "boost" ),
+                    freq,
+                    Explanation.match( mu, "mu, Dirichlet prior" ),
+                    Explanation.match( (float) encodedNorm, "dl, length of field" ),
+                    pwc );
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Dirichlet(mu=" + mu + ")";
+    }
+
+    public final float getMu() {
+        return mu;
+    }
+
+}
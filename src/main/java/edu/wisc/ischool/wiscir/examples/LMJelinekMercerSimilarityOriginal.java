@@ -0,0 +1,102 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.TermStatistics;
+
+/**
+ * Query likelihood with Jelinek-Mercer smoothing using the full accuracy document length.
+ * It was adapted from Lucene's LMJelinekMercerSimilarity with the following changes:
+ * 1. Storing and using the full accuracy document length (same as {@link BM25SimilarityOriginal});
+ * 2. The constant factor (1 - lambda) / (lambda * P(w|C)) is precomputed once per query term,
+ * so scoring a posting takes one division and one log.
+ * <p>
+ * Each matched query term contributes log( 1 + (1 - lambda) * freq / dl / (lambda * P(w|C)) ),
+ * which is rank-equivalent to query likelihood (unmatched terms contribute 0).
+ */
+public class LMJelinekMercerSimilarityOriginal extends LMSimilarityOriginal {
+
+    private final float lambda;
+
+    /**
+     * @param lambda The weight of the collection language model.
+     * @throws IllegalArgumentException if {@code lambda} is not within the range {@code (0..1]}
+     */
+    public LMJelinekMercerSimilarityOriginal( float lambda ) {
+        if ( Float.isNaN( lambda ) || lambda <= 0 || lambda > 1 ) {
+            throw new IllegalArgumentException( "illegal lambda value: " + lambda + ", must be in (0, 1]" );
+        }
+        this.lambda = lambda;
+    }
+
+    /**
+     * Jelinek-Mercer smoothing with {@code lambda = 0.1}.
+     */
+    public LMJelinekMercerSimilarityOriginal() {
+        this( 0.1f );
+    }
+
+    @Override
+    public final SimScorer scorer( float boost, CollectionStatistics collectionStats, TermStatistics... termStats ) {
+        return new JelinekMercerScorer( boost, lambda, collectionProbability( collectionStats, termStats ) );
+    }
+
+    private static class JelinekMercerScorer extends SimScorer {
+
+        /**
+         * query boost
+         */
+        private final float boost;
+
+        /**
+         * weight of the collection language model
+         */
+        private final float lambda;
+
+        /**
+         * P(w|C)
+         */
+        private final Explanation pwc;
+
+        /**
+         * (1 - lambda) / (lambda * P(w|C))
+         */
+        private final double coef;
+
+        JelinekMercerScorer( float boost, float lambda, Explanation pwc ) {
+            this.boost = boost;
+            this.lambda = lambda;
+            this.pwc = pwc;
+            this.coef = ( 1D - lambda ) / ( lambda * pwc.getValue().doubleValue() );
+        }
+
+        @Override
+        public float score( float freq, long encodedNorm ) {
+            if ( encodedNorm <= 0 ) {
+                return 0;
+            }
+            return boost * (float) Math.log1p( coef * freq / encodedNorm );
+        }
+
+        @Override
+        public Explanation explain( Explanation freq, long encodedNorm ) {
+            float score = score( freq.getValue().floatValue(), encodedNorm );
+            return Explanation.match( score, "score(freq=" + freq.getValue() + "), computed as boost * log( 1 + (1 - lambda) * freq / dl / (lambda * P(w|C)) ) from:",
+                    Explanation.match( boost, "boost" ),
+                    freq,
+                    Explanation.match( lambda, "lambda, weight of the collection model" ),
+                    Explanation.match( (float) encodedNorm, "dl, length of field" ),
+                    pwc );
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JelinekMercer(lambda=" + lambda + ")";
+    }
+
+    public final float getLambda() {
+        return lambda;
+    }
+
+}
@@ -0,0 +1,42 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.index.CollectionLM;
+import org.apache.lucene.index.FieldInvertState;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.search.similarities.Similarity;
+
+/**
+ * Base class for query likelihood language model similarities using the full accuracy document length
+ * (the same norms as {@link BM25SimilarityOriginal}).
+ * <p>
+ * The collection language model is estimated as P(w|C) = (totalTermFreq + 1) / (sumTotalTermFreq + 1)
+ * (same as Lucene's LMSimilarity.DefaultCollectionModel, and shared with {@link CollectionLM#probability(long, long)}). For a phrase, the smallest totalTermFreq
+ * among its terms is used as an estimate of the phrase's frequency.
+ */
+public abstract class LMSimilarityOriginal extends Similarity {
+
+    @Override
+    public final long computeNorm( FieldInvertState state ) {
+        return BM25SimilarityOriginal.fieldLength( state );
+    }
+
+    /**
+     * @param collectionStats collection-level statistics
+     * @param termStats       term-level statistics for the term (or the terms in a phrase)
+     * @return An explanation of P(w|C), the probability of the term in the collection.
+     */
+    protected Explanation collectionProbability( CollectionStatistics collectionStats, TermStatistics... termStats ) {
+        long ttf = Long.MAX_VALUE;
+        for ( TermStatistics stat : termStats ) {
+            ttf = Math.min( ttf, stat.totalTermFreq() );
+        }
+        long sumTotalTermFreq = collectionStats.sumTotalTermFreq();
+        return Explanation.match( (float) CollectionLM.probability( ttf, sumTotalTermFreq ),
+                "P(w|C), computed as (freq(w,C) + 1) / (len(C) + 1) from:",
+                Explanation.match( ttf, "freq(w,C), total frequency of the term in the collection" ),
+                Explanation.match( sumTotalTermFreq, "len(C), total length of the field in the collection" ) );
+    }
+
+}
@@ -0,0 +1,61 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.search.BatchSearcher;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This is an example of running a batch of queries (a topics file) and writing a TREC format run file.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneBatchSearch {
+
+    public static void main( String[] args ) {
+        try {
+
+            // change the following paths to your local ones
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+            String pathTopics = "/home/jiepu/Downloads/topics.txt"; // each line: qid query
+            String pathRun = "/home/jiepu/Downloads/run.txt";
+
+            int numThreads = Runtime.getRuntime().availableProcessors();
+
+            Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
+            IndexReader index = DirectoryReader.open( dir );
+
+            // The executor lets a searcher search the segments of a query in parallel.
+            ExecutorService segmentExecutor = Executors.newFixedThreadPool( numThreads );
+            IndexSearcher searcher = new IndexSearcher( index, segmentExecutor );
+            // make sure the similarity class you are using is consistent with those being used for indexing
+            searcher.setSimilarity( new BM25SimilarityOriginal() );
+
+            List<BatchSearcher.Topic> topics = BatchSearcher.readTopics( new File( pathTopics ).toPath() );
+            BatchSearcher batch = new BatchSearcher( searcher, LuceneBuildIndex.createAnalyzer(), "text", numThreads ).setTop( 1000 );
+            try ( Writer out = new BufferedWriter( Files.newBufferedWriter( new File( pathRun ).toPath(), StandardCharsets.UTF_8 ), 1 << 16 ) ) {
+                System.out.println( batch.run( topics, out ) );
+            }
+
+            segmentExecutor.shutdown();
+            index.close();
+            dir.close();
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
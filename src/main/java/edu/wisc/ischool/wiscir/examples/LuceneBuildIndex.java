@@ -1,15 +1,10 @@
 package edu.wisc.ischool.wiscir.examples;
 
-import org.apache.commons.compress.utils.IOUtils;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.LowerCaseFilter;
-import org.apache.lucene.analysis.StopFilter;
-import org.apache.lucene.analysis.TokenFilter;
-import org.apache.lucene.analysis.en.EnglishAnalyzer;
-import org.apache.lucene.analysis.en.KStemFilter;
-import org.apache.lucene.analysis.en.PorterStemFilter;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.analysis.standard.StandardTokenizer;
+import edu.wisc.ischool.wiscir.corpus.CorpusFiles;
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.index.IndexingStats;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
@@ -20,11 +15,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
+import java.nio.file.Path;
 
 /**
  * This is an example of building a Lucene index for the example corpus.
@@ -34,99 +25,90 @@ import java.util.zip.GZIPInputStream;
  */
 public class LuceneBuildIndex {
 
+    /**
+     * This is the field setting for metadata field (no tokenization, searchable, and stored).
+     */
+    public static final FieldType fieldTypeMetadata = new FieldType();
+
+    /**
+     * This is the field setting for normal text field (tokenized, searchable, store document vectors)
+     */
+    public static final FieldType fieldTypeText = new FieldType();
+
+    static {
+        fieldTypeMetadata.setOmitNorms( true );
+        fieldTypeMetadata.setIndexOptions( IndexOptions.DOCS );
+        fieldTypeMetadata.setStored( true );
+        fieldTypeMetadata.setTokenized( false );
+        fieldTypeMetadata.freeze();
+
+        fieldTypeText.setIndexOptions( IndexOptions.DOCS_AND_FREQS_AND_POSITIONS );
+        fieldTypeText.setStoreTermVectors( true );
+        fieldTypeText.setStoreTermVectorPositions( true );
+        // character offsets in document vectors locate query terms in the stored text for snippets (see ResultRenderer)
+        fieldTypeText.setStoreTermVectorOffsets( true );
+        fieldTypeText.setTokenized( true );
+        fieldTypeText.setStored( true );
+        fieldTypeText.freeze();
+    }
+
     public static void main( String[] args ) {
         try {
 
             // change the following input and output paths to your local ones
+            // the corpus can be a file, a folder of files, or a glob pattern such as "/data/trec45/**/*.gz"
             String pathCorpus = "/home/jiepu/Downloads/example_corpus.gz";
             String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
 
             Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
 
-            // Analyzer specifies options for text tokenization and normalization (e.g., stemming, stop words removal, case-folding)
-            Analyzer analyzer = new Analyzer() {
-                @Override
-                protected TokenStreamComponents createComponents( String fieldName ) {
-                    // Step 1: tokenization (Lucene's StandardTokenizer is suitable for most text retrieval occasions)
-                    TokenStreamComponents ts = new TokenStreamComponents( new StandardTokenizer() );
-                    // Step 2: transforming all tokens into lowercased ones (recommended for the majority of the problems)
-                    ts = new TokenStreamComponents( ts.getSource(), new LowerCaseFilter( ts.getTokenStream() ) );
-                    // Step 3: whether to remove stop words (unnecessary to remove stop words unless you can't afford the extra disk space)
-                    // Uncomment the following line to remove stop words
-                    // ts = new TokenStreamComponents( ts.getSource(), new StopFilter( ts.getTokenStream(), EnglishAnalyzer.ENGLISH_STOP_WORDS_SET ) );
-                    // Step 4: whether to apply stemming
-                    // Uncomment one of the following two lines to apply Krovetz or Porter stemmer (Krovetz is more common for IR research)
-                    ts = new TokenStreamComponents( ts.getSource(), new KStemFilter( ts.getTokenStream() ) );
-                    // ts = new TokenStreamComponents( ts.getSource(), new PorterStemFilter( ts.getTokenStream() ) );
-                    return ts;
-                }
-            };
+            TextAnalyzer analyzer = createAnalyzer();
 
-            IndexWriterConfig config = new IndexWriterConfig( analyzer );
+            // IndexingStats reports the indexing throughput, flushes and merges every 10 seconds,
+            // and tunes the RAM buffer and the merge threads as the indexing goes on.
+            IndexingStats stats = new IndexingStats().setReportIntervalMillis( 10000 ).setAutoTune( true );
+
+            // the wrapped analyzer works the same as the original one, but measures the analysis time
+            IndexWriterConfig config = new IndexWriterConfig( stats.wrap( analyzer ) );
             // Note that IndexWriterConfig.OpenMode.CREATE will override the original index in the folder
             config.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
             // Lucene's default BM25Similarity stores document field length using a "low-precision" method.
             // Use the BM25SimilarityOriginal to store the original document length values in index.
             config.setSimilarity( new BM25SimilarityOriginal() );
+            // Lucene flushes the in-memory segment to disk once it reaches 16MB (the default), which creates many small
+            // segments to merge later for a large corpus. Start with a larger buffer (the auto-tuning adjusts it).
+            config.setRAMBufferSizeMB( 64 );
+            // the IndexWriter reports flushes and merges to IndexingStats
+            config.setInfoStream( stats );
 
             IndexWriter ixwriter = new IndexWriter( dir, config );
-
-            // This is the field setting for metadata field (no tokenization, searchable, and stored).
-            FieldType fieldTypeMetadata = new FieldType();
-            fieldTypeMetadata.setOmitNorms( true );
-            fieldTypeMetadata.setIndexOptions( IndexOptions.DOCS );
-            fieldTypeMetadata.setStored( true );
-            fieldTypeMetadata.setTokenized( false );
-            fieldTypeMetadata.freeze();
-
-            // This is the field setting for normal text field (tokenized, searchable, store document vectors)
-            FieldType fieldTypeText = new FieldType();
-            fieldTypeText.setIndexOptions( IndexOptions.DOCS_AND_FREQS_AND_POSITIONS );
-            fieldTypeText.setStoreTermVectors( true );
-            fieldTypeText.setStoreTermVectorPositions( true );
-            fieldTypeText.setTokenized( true );
-            fieldTypeText.setStored( true );
-            fieldTypeText.freeze();
+            // save the analyzer options in the index so that queries can be processed in the same way
+            analyzer.saveTo( ixwriter );
+            stats.start( ixwriter );
 
             // You need to iteratively read each document from the example corpus file,
             // create a Document object for the parsed document, and add that
             // Document object by calling addDocument().
 
-            // Well, the following only works for small text files. DO NOT follow this part for large dataset files.
-            InputStream instream = new GZIPInputStream( new FileInputStream( pathCorpus ) );
-            String corpusText = new String( IOUtils.toByteArray( instream ), "UTF-8" );
-            instream.close();
-
-            Pattern pattern = Pattern.compile(
-                    "<DOC>.+?<DOCNO>(.+?)</DOCNO>.+?<TITLE>(.+?)</TITLE>.+?<AUTHOR>(.+?)</AUTHOR>.+?<SOURCE>(.+?)</SOURCE>.+?<TEXT>(.+?)</TEXT>.+?</DOC>",
-                    Pattern.CASE_INSENSITIVE + Pattern.MULTILINE + Pattern.DOTALL
-            );
-
-            Matcher matcher = pattern.matcher( corpusText );
-
-            while ( matcher.find() ) {
-
-                String docno = matcher.group( 1 ).trim();
-                String title = matcher.group( 2 ).trim();
-                String author = matcher.group( 3 ).trim();
-                String source = matcher.group( 4 ).trim();
-                String text = matcher.group( 5 ).trim();
-
-                // Create a Document object
-                Document d = new Document();
-                // Add each field to the document with the appropriate field type options
-                d.add( new Field( "docno", docno, fieldTypeMetadata ) );
-                d.add( new Field( "title", title, fieldTypeText ) );
-                d.add( new Field( "author", author, fieldTypeText ) );
-                d.add( new Field( "source", source, fieldTypeText ) );
-                d.add( new Field( "text", text, fieldTypeText ) );
-                // Add the document to the index
-                System.out.println( "indexing document " + docno );
-                ixwriter.addDocument( d );
+            // TrecTextReader parses the corpus file one document at a time, so that it works for large dataset files
+            // (it never loads the whole corpus into memory). It decompresses .gz, .bz2, .xz, .z, and tar files on the fly.
+            // See LuceneBuildIndexParallel for indexing many corpus files in parallel.
+            for ( Path file : CorpusFiles.list( pathCorpus ) ) {
+                TrecTextReader reader = TrecTextReader.open( file );
+
+                TrecTextDocument doc;
+                while ( ( doc = stats.next( reader ) ) != null ) {
+                    // Add the document to the index
+                    stats.addDocument( ixwriter, createDocument( doc ) );
+                }
+
+                reader.close();
             }
 
             // remember to close both the index writer and the directory
             ixwriter.close();
+            stats.close();
+            System.out.println( stats );
             dir.close();
 
         } catch ( Exception e ) {
@@ -134,4 +116,29 @@ public class LuceneBuildIndex {
         }
     }
 
+    /**
+     * @return The analyzer used for building the example index.
+     */
+    public static TextAnalyzer createAnalyzer() {
+        // Analyzer specifies options for text tokenization and normalization (e.g., stemming, stop words removal, case-folding).
+        // See TextAnalyzer for the options; the default ones are lowercase, keeping stop words, and Krovetz stemmer.
+        return new TextAnalyzer();
+    }
+
+    /**
+     * Create a Lucene Document object for a parsed trectext document.
+     *
+     * @param doc A parsed trectext document.
+     * @return A Document object with each field added using the appropriate field type options.
+     */
+    public static Document createDocument( TrecTextDocument doc ) {
+        Document d = new Document();
+        d.add( new Field( "docno", doc.getDocno(), fieldTypeMetadata ) );
+        d.add( new Field( "title", doc.getTitle(), fieldTypeText ) );
+        d.add( new Field( "author", doc.getAuthor(), fieldTypeText ) );
+        d.add( new Field( "source", doc.getSource(), fieldTypeText ) );
+        d.add( new Field( "text", doc.getText(), fieldTypeText ) );
+        return d;
+    }
+
 }
@@ -0,0 +1,72 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.corpus.CorpusFiles;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.index.IndexingStats;
+import edu.wisc.ischool.wiscir.index.MultiFileIndexer;
+import edu.wisc.ischool.wiscir.index.ParallelIndexer;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * This is an example of building a Lucene index for the example corpus using multiple threads.
+ * It builds the same index as {@link LuceneBuildIndex}, but documents are analyzed and added by all available processors.
+ * A collection of many files (a folder or a glob pattern) is decompressed and parsed file by file on all processors;
+ * a single file is parsed by one thread and its documents are analyzed and added by all processors.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneBuildIndexParallel {
+
+    public static void main( String[] args ) {
+        try {
+
+            // change the following input and output paths to your local ones
+            String pathCorpus = "/home/jiepu/Downloads/example_corpus.gz"; // a file, a folder, or a glob pattern
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+
+            Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
+
+            TextAnalyzer analyzer = LuceneBuildIndex.createAnalyzer();
+            IndexingStats stats = new IndexingStats().setAutoTune( true );
+            IndexWriterConfig config = new IndexWriterConfig( stats.wrap( analyzer ) );
+            config.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
+            config.setSimilarity( new BM25SimilarityOriginal() );
+            // Each indexing thread fills its own in-memory segment; a larger RAM buffer means fewer, larger flushes.
+            config.setRAMBufferSizeMB( 256 );
+            config.setInfoStream( stats );
+
+            IndexWriter ixwriter = new IndexWriter( dir, config );
+            analyzer.saveTo( ixwriter );
+            stats.start( ixwriter );
+
+            List<Path> corpusFiles = CorpusFiles.list( pathCorpus );
+            if ( corpusFiles.size() == 1 ) {
+                TrecTextReader reader = TrecTextReader.open( corpusFiles.get( 0 ) );
+                // the stats report the progress, so the indexer does not need to
+                new ParallelIndexer( ixwriter ).setReportIntervalMillis( 0 ).setStats( stats ).index( reader );
+                reader.close();
+            } else {
+                new MultiFileIndexer( ixwriter ).setStats( stats ).index( corpusFiles );
+            }
+
+            // remember to close both the index writer and the directory
+            ixwriter.close();
+            stats.close();
+            System.out.println( stats );
+            dir.close();
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
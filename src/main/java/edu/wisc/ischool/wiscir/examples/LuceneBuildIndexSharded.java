@@ -0,0 +1,44 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.corpus.CorpusFiles;
+import edu.wisc.ischool.wiscir.index.ShardedIndexer;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * This is an example of building a Lucene index in several independent shards
+ * (one IndexWriter per shard, each running on its own thread) and merging them into one index.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneBuildIndexSharded {
+
+    public static void main( String[] args ) {
+        try {
+
+            // change the following paths to your local ones
+            String pathCorpusFolder = "/home/jiepu/Downloads/example_corpus"; // a folder (or a glob pattern) of trectext (.gz) files
+            String pathShards = "/home/jiepu/Downloads/example_index_lucene_shards";
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+
+            int numShards = Runtime.getRuntime().availableProcessors();
+
+            List<Path> corpusFiles = CorpusFiles.list( pathCorpusFolder );
+
+            long start = System.nanoTime();
+            List<Path> shards = new ShardedIndexer( new File( pathShards ).toPath(), numShards ).build( corpusFiles );
+            System.out.printf( "built %d shards in %.1f seconds\n", shards.size(), ( System.nanoTime() - start ) / 1e9 );
+
+            // You can also skip this step and search the shards separately.
+            ShardedIndexer.merge( shards, new File( pathIndex ).toPath() );
+            System.out.printf( "merged %d shards in %.1f seconds\n", shards.size(), ( System.nanoTime() - start ) / 1e9 );
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
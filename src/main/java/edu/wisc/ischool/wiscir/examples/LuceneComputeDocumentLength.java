@@ -1,5 +1,6 @@
 package edu.wisc.ischool.wiscir.examples;
 
+import edu.wisc.ischool.wiscir.index.DocLengthStore;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.TermsEnum;
@@ -7,6 +8,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -43,6 +45,18 @@ public class LuceneComputeDocumentLength {
                 System.out.printf( "%-10d%-15s%-10d\n", docid, docno, doclen );
             }
 
+            // A much faster alternative: if you built the index using BM25SimilarityOriginal, the exact document
+            // lengths are stored in the index's norms. DocLengthStore writes them into an external file once
+            // and memory-maps the file, so that each lookup is just reading an int by docid.
+            Path pathDocLength = DocLengthStore.defaultPath( new File( pathIndex ).toPath(), field );
+            // the file is (re)written if it does not exist or was written for another commit of the index
+            DocLengthStore doclens = DocLengthStore.open( ixreader, field, pathDocLength );
+            System.out.printf( "%-10s%-15s%-10s\n", "DOCID", "DOCNO", "Length" );
+            for ( int docid = 0; docid < ixreader.maxDoc(); docid++ ) {
+                String docno = ixreader.document( docid, fieldset ).get( "docno" );
+                System.out.printf( "%-10d%-15s%-10d\n", docid, docno, doclens.getLength( docid ) );
+            }
+
             ixreader.close();
             dir.close();
 
@@ -0,0 +1,44 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.index.VocabularyExporter;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+
+/**
+ * This is an example of exporting the whole vocabulary of a field (with DF, total TF, IDF, and p(w|c)) to a file.
+ * Unlike LuceneIterateVocabulary, it uses multiple threads and buffered output, so it works for large vocabularies.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneExportVocabulary {
+
+    public static void main( String[] args ) {
+        try {
+
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+            String pathOutput = "/home/jiepu/Downloads/example_vocabulary.tsv";
+
+            // Let's export the vocabulary of the "text" field
+            String field = "text";
+
+            Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
+            IndexReader index = DirectoryReader.open( dir );
+
+            VocabularyExporter exporter = new VocabularyExporter( index, field, Runtime.getRuntime().availableProcessors() );
+            long count = exporter.export( new File( pathOutput ).toPath(), VocabularyExporter.Format.TSV );
+            System.out.printf( "exported %d terms\n", count );
+
+            index.close();
+            dir.close();
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package edu.wisc.ischool.wiscir.examples;
 
+import edu.wisc.ischool.wiscir.index.CollectionLM;
+import edu.wisc.ischool.wiscir.search.TermStatsCache;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -7,6 +9,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 
 import java.io.File;
+import java.nio.file.Path;
 
 /**
  * This is an example of accessing corpus statistics and corpus-level term statistics.
@@ -28,18 +31,31 @@ public class LuceneReadCorpusStats {
             Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
             IndexReader index = DirectoryReader.open( dir );
 
+            // TermStatsCache caches the term statistics of a reader, so looking up the same term again
+            // (e.g., a frequent query term) does not seek the term dictionary again
+            TermStatsCache stats = TermStatsCache.get( index, 10000 );
+
             int N = index.numDocs(); // the total number of documents in the index
-            int n = index.docFreq( new Term( field, term ) ); // get the document frequency of the term in the "text" field
+            int n = stats.docFreq( new Term( field, term ) ); // get the document frequency of the term in the "text" field
             double idf = Math.log( ( N + 1.0 ) / ( n + 1.0 ) ); // well, we normalize N and n by adding 1 to avoid n = 0
 
             System.out.printf( "%-30sN=%-10dn=%-10dIDF=%-8.2f\n", term, N, n, idf );
 
-            long corpusTF = index.totalTermFreq( new Term( field, term ) ); // get the total frequency of the term in the "text" field
-            long corpusLength = index.getSumTotalTermFreq( field ); // get the total length of the "text" field
+            long corpusTF = stats.totalTermFreq( new Term( field, term ) ); // get the total frequency of the term in the "text" field
+            long corpusLength = stats.sumTotalTermFreq( field ); // get the total length of the "text" field
             double pwc = 1.0 * corpusTF / corpusLength;
 
             System.out.printf( "%-30slen(corpus)=%-10dfreq(%s)=%-10dP(%s|corpus)=%-10.6f\n", term, corpusLength, term, corpusTF, term, pwc );
 
+            // If you need P(w|corpus) for many words (e.g., for query likelihood or query expansion), build a
+            // CollectionLM once. It is a memory-mapped file of the whole vocabulary's P(w|corpus), so each lookup
+            // is a hash table probe instead of a term dictionary seek. It estimates P(w|corpus) as
+            // (freq + 1) / (len + 1), the same as LMSimilarityOriginal, so unseen words do not get a zero probability.
+            Path pathCLM = CollectionLM.defaultPath( new File( pathIndex ).toPath(), field );
+            // the files are (re)written if they do not exist or were written for another commit of the index
+            CollectionLM clm = CollectionLM.open( index, field, pathCLM );
+            System.out.printf( "%-30sP(%s|corpus)=%-10.6f\n", term, term, clm.probability( term ) );
+
             // remember to close the index and the directory
             index.close();
             dir.close();
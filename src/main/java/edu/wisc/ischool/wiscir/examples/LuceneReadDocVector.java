@@ -1,11 +1,14 @@
 package edu.wisc.ischool.wiscir.examples;
 
+import edu.wisc.ischool.wiscir.index.CollectionLM;
+import edu.wisc.ischool.wiscir.index.ForwardIndex;
 import org.apache.lucene.index.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.File;
+import java.nio.file.Path;
 
 /**
  * This is an example for accessing a stored document vector from a Lucene index.
@@ -53,6 +56,20 @@ public class LuceneReadDocVector {
                 System.out.println();
             }
 
+            // If you need to read many document vectors (e.g., the top-ranked documents for pseudo-relevance feedback),
+            // write a ForwardIndex once. It stores each document vector as (term ordinal, frequency) entries in a
+            // memory-mapped file, and the term ordinals come from the field's CollectionLM.
+            Path pathCLM = CollectionLM.defaultPath( new File( pathIndex ).toPath(), field );
+            Path pathForward = ForwardIndex.defaultPath( new File( pathIndex ).toPath(), field );
+            // the files are (re)written if they do not exist or were written for another commit of the index
+            CollectionLM clm = CollectionLM.open( index, field, pathCLM );
+            ForwardIndex forward = ForwardIndex.open( index, field, clm, pathForward );
+            ForwardIndex.DocVector docvec = forward.newDocVector().reset( docid );
+            System.out.printf( "%-20s%-10s\n", "TERM", "FREQ" );
+            while ( docvec.next() ) {
+                System.out.printf( "%-20s%-10d\n", clm.term( docvec.ord() ).utf8ToString(), docvec.freq() );
+            }
+
             index.close();
             dir.close();
 
@@ -1,12 +1,8 @@
 package edu.wisc.ischool.wiscir.examples;
 
+import edu.wisc.ischool.wiscir.search.ResultRenderer;
 import edu.wisc.ischool.wiscir.utils.LuceneUtils;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.LowerCaseFilter;
-import org.apache.lucene.analysis.StopFilter;
-import org.apache.lucene.analysis.en.EnglishAnalyzer;
-import org.apache.lucene.analysis.en.KStemFilter;
-import org.apache.lucene.analysis.standard.StandardTokenizer;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.queryparser.classic.QueryParser;
@@ -33,24 +29,10 @@ public class LuceneSearchExample {
 
             String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
 
-            // Analyzer specifies options for text tokenization and normalization (e.g., stemming, stop words removal, case-folding)
-            Analyzer analyzer = new Analyzer() {
-                @Override
-                protected TokenStreamComponents createComponents( String fieldName ) {
-                    // Step 1: tokenization (Lucene's StandardTokenizer is suitable for most text retrieval occasions)
-                    TokenStreamComponents ts = new TokenStreamComponents( new StandardTokenizer() );
-                    // Step 2: transforming all tokens into lowercased ones (recommended for the majority of the problems)
-                    ts = new TokenStreamComponents( ts.getSource(), new LowerCaseFilter( ts.getTokenStream() ) );
-                    // Step 3: whether to remove stop words (unnecessary to remove stop words unless you can't afford the extra disk space)
-                    // Uncomment the following line to remove stop words
-                    // ts = new TokenStreamComponents( ts.getSource(), new StopFilter( ts.getTokenStream(), EnglishAnalyzer.ENGLISH_STOP_WORDS_SET ) );
-                    // Step 4: whether to apply stemming
-                    // Uncomment one of the following two lines to apply Krovetz or Porter stemmer (Krovetz is more common for IR research)
-                    ts = new TokenStreamComponents( ts.getSource(), new KStemFilter( ts.getTokenStream() ) );
-                    // ts = new TokenStreamComponents( ts.getSource(), new PorterStemFilter( ts.getTokenStream() ) );
-                    return ts;
-                }
-            };
+            // Analyzer specifies options for text tokenization and normalization (e.g., stemming, stop words removal, case-folding).
+            // You must process queries in the same way as the indexed documents, so we use the same analyzer as LuceneBuildIndex.
+            // For an index built by LuceneBuildIndex, TextAnalyzer.fromIndex( index ) also recreates the analyzer from the options saved in the index.
+            TextAnalyzer analyzer = LuceneBuildIndex.createAnalyzer();
 
             String field = "text"; // the field you hope to search for
             QueryParser parser = new QueryParser( field, analyzer ); // a query parser that transforms a text string into Lucene's query object
@@ -67,6 +49,9 @@ public class LuceneSearchExample {
 
             // make sure the similarity class you are using is consistent with those being used for indexing
             searcher.setSimilarity( new BM25SimilarityOriginal() );
+            // Uncomment one of the following two lines to use query likelihood language models (they read the same document lengths)
+            // searcher.setSimilarity( new LMDirichletSimilarityOriginal( 2000 ) );
+            // searcher.setSimilarity( new LMJelinekMercerSimilarityOriginal( 0.1f ) );
 
             int top = 10; // Let's just retrieve the talk 10 results
             TopDocs docs = searcher.search( query, top ); // retrieve the top 10 results; retrieved results are stored in TopDocs
@@ -82,6 +67,17 @@ public class LuceneSearchExample {
                 rank++;
             }
 
+            // The above reads the stored fields of each result twice (once for docno and once for title).
+            // ResultRenderer loads all the needed stored fields of the results together and also generates snippets.
+            // Snippets are HTML by default; print them to the console as plain text, with the matches in [brackets].
+            ResultRenderer renderer = new ResultRenderer( index, analyzer, "text", "docno", "title" )
+                    .setEscapeHtml( false )
+                    .setTags( "[", "]" );
+            for ( ResultRenderer.Result result : renderer.render( qstr, docs ) ) {
+                System.out.printf( "%-10d%-20s%-10.4f%s\n", result.getRank(), result.getField( "docno" ), result.getScore(), result.getField( "title" ) );
+                System.out.printf( "%-40s%s\n", "", result.getSnippet() );
+            }
+
             // remember to close the index and the directory
             index.close();
             dir.close();
@@ -0,0 +1,74 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.index.CollectionLM;
+import edu.wisc.ischool.wiscir.index.ForwardIndex;
+import edu.wisc.ischool.wiscir.search.RM3Searcher;
+import edu.wisc.ischool.wiscir.utils.DocnoMapper;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This is an example of searching with RM3 pseudo-relevance feedback.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneSearchRM3 {
+
+    public static void main( String[] args ) {
+        try {
+
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+            String field = "text";
+            String qstr = "query reformulation";
+
+            Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
+            DirectoryReader index = DirectoryReader.open( dir );
+
+            // RM3 reads the feedback documents from a forward index, whose term ordinals come from the collection language model
+            Path pathCLM = CollectionLM.defaultPath( new File( pathIndex ).toPath(), field );
+            Path pathForward = ForwardIndex.defaultPath( new File( pathIndex ).toPath(), field );
+            // the files are (re)written if they do not exist or were written for another commit of the index
+            CollectionLM clm = CollectionLM.open( index, field, pathCLM );
+            ForwardIndex forward = ForwardIndex.open( index, field, clm, pathForward );
+
+            IndexSearcher searcher = new IndexSearcher( index );
+            searcher.setSimilarity( new BM25SimilarityOriginal() );
+
+            ExecutorService executor = Executors.newFixedThreadPool( 4 );
+            RM3Searcher rm3 = new RM3Searcher( searcher, TextAnalyzer.fromIndex( index ), field, clm, forward, executor )
+                    .setFbDocs( 10 )
+                    .setFbTerms( 20 )
+                    .setOriginalQueryWeight( 0.5f )
+                    .setTimeCapMillis( 100 );
+            RM3Searcher.Result result = rm3.search( qstr, 10 );
+
+            System.out.println( "expanded query: " + result.getQuery() );
+            System.out.println( result );
+
+            DocnoMapper docnos = DocnoMapper.get( index, "docno" );
+            System.out.printf( "%-10s%-20s%-10s\n", "Rank", "DocNo", "Score" );
+            int rank = 1;
+            for ( ScoreDoc scoreDoc : result.getTopDocs().scoreDocs ) {
+                System.out.printf( "%-10d%-20s%-10.4f\n", rank++, docnos.getDocno( scoreDoc.doc ), scoreDoc.score );
+            }
+
+            executor.shutdown();
+            index.close();
+            dir.close();
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.search.SDMSearcher;
+import edu.wisc.ischool.wiscir.utils.DocnoMapper;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+
+/**
+ * This is an example of searching with the sequential dependence model (term proximity).
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneSearchSDM {
+
+    public static void main( String[] args ) {
+        try {
+
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+            String field = "text";
+            String qstr = "query reformulation";
+
+            Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
+            DirectoryReader index = DirectoryReader.open( dir );
+
+            // the first pass retrieves 1000 candidates using query likelihood, which are then reranked by SDM
+            IndexSearcher searcher = new IndexSearcher( index );
+            searcher.setSimilarity( new LMDirichletSimilarityOriginal( 2000 ) );
+
+            SDMSearcher sdm = new SDMSearcher( searcher, TextAnalyzer.fromIndex( index ), field )
+                    .setWeights( 0.85f, 0.10f, 0.05f )
+                    .setWindow( 8 )
+                    .setNumCandidates( 1000 );
+            TopDocs docs = sdm.search( qstr, 10 );
+
+            DocnoMapper docnos = DocnoMapper.get( index, "docno" );
+            System.out.printf( "%-10s%-20s%-10s\n", "Rank", "DocNo", "Score" );
+            int rank = 1;
+            for ( ScoreDoc scoreDoc : docs.scoreDocs ) {
+                System.out.printf( "%-10d%-20s%-10.4f\n", rank++, docnos.getDocno( scoreDoc.doc ), scoreDoc.score );
+            }
+
+            index.close();
+            dir.close();
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.search.SearchMetrics;
+import edu.wisc.ischool.wiscir.search.SearchServer;
+import edu.wisc.ischool.wiscir.search.WarmSearcherManager;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is an example of serving search results over HTTP, e.g.,
+ * <pre>
+ * curl "http://localhost:8080/search?q=query+reformulation&amp;k=10&amp;timeout=500"
+ * </pre>
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneSearchServer {
+
+    public static void main( String[] args ) {
+        try {
+
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+            String field = "text";
+            int port = 8080;
+
+            Directory dir = FSDirectory.open( new File( pathIndex ).toPath() );
+            Analyzer analyzer;
+            try ( DirectoryReader index = DirectoryReader.open( dir ) ) {
+                analyzer = TextAnalyzer.fromIndex( index );
+            }
+
+            // the searcher is warmed up with a few queries before serving requests
+            List<Query> warmupQueries = new ArrayList<>();
+            QueryParser parser = new QueryParser( field, analyzer );
+            for ( String qstr : new String[]{ "query reformulation", "search engine", "user behavior" } ) {
+                warmupQueries.add( parser.parse( qstr ) );
+            }
+            WarmSearcherManager manager = new WarmSearcherManager( dir, new BM25SimilarityOriginal(), warmupQueries, null );
+
+            // latency histograms of the query stages are printed every minute (and served at /metrics)
+            SearchMetrics metrics = new SearchMetrics( true );
+            metrics.startReporting( 60000, false, System.out );
+
+            // at most 8 searches run at the same time; a request is stopped after 1 second (unless it sets a timeout)
+            SearchServer server = new SearchServer( manager, analyzer, field, new InetSocketAddress( port ) )
+                    .setMaxConcurrent( 8 )
+                    .setDefaultTimeoutMillis( 1000 )
+                    .setMetrics( metrics );
+            server.start();
+            System.out.println( "Listening on http://localhost:" + server.getPort() + "/search?q=..." );
+
+            Runtime.getRuntime().addShutdownHook( new Thread( () -> {
+                try {
+                    server.close();
+                    metrics.close();
+                    manager.close();
+                    dir.close();
+                } catch ( Exception e ) {
+                    e.printStackTrace();
+                }
+            } ) );
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package edu.wisc.ischool.wiscir.examples;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.index.CollectionLM;
+import edu.wisc.ischool.wiscir.index.DocLengthStore;
+import edu.wisc.ischool.wiscir.index.ForwardIndex;
+import edu.wisc.ischool.wiscir.index.IncrementalIndexer;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This is an example of updating an existing index (built by {@link LuceneBuildIndex}) with a daily delta:
+ * a trectext file of new or changed documents, and a file of deleted docnos (one per line).
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LuceneUpdateIndex {
+
+    public static void main( String[] args ) {
+        try {
+
+            // change the following paths to your local ones
+            String pathDelta = "/home/jiepu/Downloads/delta_corpus.gz";
+            String pathDeletes = "/home/jiepu/Downloads/delta_deletes.txt";
+            String pathIndex = "/home/jiepu/Downloads/example_index_lucene";
+            String field = "text";
+
+            Path pathIndexFolder = new File( pathIndex ).toPath();
+            Directory dir = FSDirectory.open( pathIndexFolder );
+
+            // the reader of the index before the update (used for updating the document length file)
+            DirectoryReader oldReader = DirectoryReader.open( dir );
+
+            // use the analyzer saved in the index, so that the new documents are processed in the same way
+            IndexWriterConfig config = new IndexWriterConfig( TextAnalyzer.fromIndex( oldReader ) );
+            // OpenMode.CREATE_OR_APPEND keeps the existing documents (OpenMode.CREATE would wipe them out)
+            config.setOpenMode( IndexWriterConfig.OpenMode.CREATE_OR_APPEND );
+            config.setSimilarity( new BM25SimilarityOriginal() );
+            IndexWriter ixwriter = new IndexWriter( dir, config );
+
+            // documents in the delta replace the indexed documents with the same docnos (or are added as new ones)
+            IncrementalIndexer indexer = new IncrementalIndexer( ixwriter, "docno" );
+            try ( TrecTextReader reader = TrecTextReader.open( new File( pathDelta ).toPath() ) ) {
+                indexer.upsert( reader );
+            }
+            if ( Files.exists( new File( pathDeletes ).toPath() ) ) {
+                indexer.delete( new File( pathDeletes ).toPath() );
+            }
+
+            // commit the update and update the sidecar files (if any) of the field, which only read the new segments
+            DirectoryReader newReader = indexer.commit( oldReader, field,
+                    DocLengthStore.defaultPath( pathIndexFolder, field ),
+                    CollectionLM.defaultPath( pathIndexFolder, field ),
+                    ForwardIndex.defaultPath( pathIndexFolder, field ) );
+            System.out.printf( "upserted %d and deleted %d documents; the index now has %d documents\n",
+                    indexer.getNumUpserted(), indexer.getNumDeleted(), newReader.numDocs() );
+
+            newReader.close();
+            oldReader.close();
+            ixwriter.close();
+            dir.close();
+
+        } catch ( Exception e ) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,623 @@
+package edu.wisc.ischool.wiscir.index;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A precomputed collection language model, i.e., P(w|C) = (totalTF(w) + 1) / (corpusLength + 1), for one field of an index.
+ * The estimator ({@link #probability(long, long)}) is the same as the one used by LMSimilarityOriginal (and Lucene's
+ * LMSimilarity.DefaultCollectionModel), so models and similarities agree on P(w|C).
+ * <p>
+ * The model is stored in a single little-endian file with:
+ * <pre>
+ * header:  int magic ("CLM2"), int numTerms, int tableSize, int maxDoc,
+ *          long corpusLength, long numDocs, long generation, long id
+ * long[numTerms + 1]  offsets of the terms in the term bytes
+ * long[numTerms]      totalTF of the terms, by term ordinal
+ * int[numTerms]       docFreq of the terms, by term ordinal
+ * int[tableSize]      an open-addressing hash table (murmurhash3 of the term) of term ordinals + 1; 0 for empty slots
+ * byte[]              the UTF-8 bytes of the terms, by term ordinal
+ * </pre>
+ * The file is memory-mapped, so opening a model is instant, the model lives off-heap, and a lookup is a hash probe
+ * plus a comparison of the term bytes (no term dictionary seek).
+ * <p>
+ * {@link #write} assigns term ordinals in the order of the sorted vocabulary. After an incremental update of the
+ * index, {@link #update} adjusts the statistics by those of the added and removed segments only, so its cost is
+ * proportional to the update (plus rewriting the file): existing terms keep their ordinals (so a {@link ForwardIndex}
+ * built on the model stays valid), new terms get the next ordinals, and terms that no longer occur keep their
+ * ordinals with zero frequencies. The statistics are the same as Lucene's (which include deleted documents until
+ * their segments are merged), so they equal those of a model written from scratch.
+ * <p>
+ * The header records the commit generation and maxDoc of the index the model was written from, and the model's id,
+ * which is kept by updates and checked by {@link ForwardIndex}. Use {@link #open(IndexReader, String, Path)} to open
+ * the model of a reader: it rewrites the file if it was written for another commit.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class CollectionLM {
+
+    /**
+     * "CLM2"
+     */
+    public static final int MAGIC = 0x434c4d32;
+
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + 4 * Long.BYTES;
+
+    /**
+     * The largest hash table (it is at most half full, so a model has at most MAX_TABLE_SIZE / 2 terms).
+     */
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    private final int numTerms;
+    private final int maxDoc;
+    private final long corpusLength;
+    private final long numDocs;
+    private final long generation;
+    private final long id;
+    private final LongBuffer offsets;
+    private final LongBuffer ttfs;
+    private final IntBuffer dfs;
+    private final IntBuffer table;
+    private final int mask;
+    private final ByteBuffer bytes;
+
+    private CollectionLM( ByteBuffer header, LongBuffer offsets, LongBuffer ttfs, IntBuffer dfs, IntBuffer table, ByteBuffer bytes ) {
+        this.numTerms = header.getInt( 4 );
+        this.maxDoc = header.getInt( 12 );
+        this.corpusLength = header.getLong( 16 );
+        this.numDocs = header.getLong( 24 );
+        this.generation = header.getLong( 32 );
+        this.id = header.getLong( 40 );
+        this.offsets = offsets;
+        this.ttfs = ttfs;
+        this.dfs = dfs;
+        this.table = table;
+        this.mask = table.capacity() - 1;
+        this.bytes = bytes;
+    }
+
+    /**
+     * The default location of the collection language model file of a field, i.e., "[field].clm" in the index folder.
+     *
+     * @param pathIndex Path of the index.
+     * @param field     The field name.
+     * @return Path of the collection language model file.
+     */
+    public static Path defaultPath( Path pathIndex, String field ) {
+        return pathIndex.resolve( field + ".clm" );
+    }
+
+    /**
+     * Open the collection language model of a reader: the file is (re)written from the reader first if it does not
+     * exist or was written for another index commit (see {@link #isValidFor(Path, IndexReader)}).
+     *
+     * @param index An index reader.
+     * @param field The field name.
+     * @param path  Path of the collection language model file.
+     * @return The collection language model.
+     * @throws IOException
+     */
+    public static CollectionLM open( IndexReader index, String field, Path path ) throws IOException {
+        if ( !isValidFor( path, index ) ) {
+            write( index, field, path );
+        }
+        return open( path );
+    }
+
+    /**
+     * @param path  Path of a collection language model file.
+     * @param index An index reader.
+     * @return Whether the file exists and was written (or updated) for the reader's commit generation and maxDoc.
+     * @throws IOException
+     */
+    public static boolean isValidFor( Path path, IndexReader index ) throws IOException {
+        ByteBuffer header = Sidecars.readHeader( path, HEADER_BYTES );
+        return header != null && header.getInt( 0 ) == MAGIC && header.getInt( 12 ) == index.maxDoc()
+                && header.getLong( 32 ) == Sidecars.generation( index );
+    }
+
+    /**
+     * Open a collection language model file (without checking it against an index).
+     *
+     * @param path Path of the collection language model file.
+     * @return The collection language model.
+     * @throws IOException
+     */
+    public static CollectionLM open( Path path ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+            ByteBuffer header = map( channel, 0, HEADER_BYTES );
+            if ( header.getInt( 0 ) != MAGIC ) {
+                throw new IOException( "not a collection language model file: " + path );
+            }
+            int numTerms = header.getInt( 4 );
+            int tableSize = header.getInt( 8 );
+
+            long pos = HEADER_BYTES;
+            LongBuffer offsets = map( channel, pos, ( numTerms + 1L ) * Long.BYTES ).asLongBuffer();
+            pos += ( numTerms + 1L ) * Long.BYTES;
+            LongBuffer ttfs = map( channel, pos, (long) numTerms * Long.BYTES ).asLongBuffer();
+            pos += (long) numTerms * Long.BYTES;
+            IntBuffer dfs = map( channel, pos, (long) numTerms * Integer.BYTES ).asIntBuffer();
+            pos += (long) numTerms * Integer.BYTES;
+            IntBuffer table = map( channel, pos, (long) tableSize * Integer.BYTES ).asIntBuffer();
+            pos += (long) tableSize * Integer.BYTES;
+            long numBytes = offsets.get( numTerms );
+            if ( pos + numBytes != channel.size() ) {
+                throw new IOException( "corrupted collection language model file " + path + ": expected " + ( pos + numBytes ) + " bytes but found " + channel.size() );
+            }
+            ByteBuffer bytes = map( channel, pos, numBytes );
+            return new CollectionLM( header, offsets, ttfs, dfs, table, bytes );
+        }
+    }
+
+    /**
+     * @return The position of the term bytes in the file.
+     */
+    private long bytesStart() {
+        return HEADER_BYTES + ( numTerms + 1L ) * Long.BYTES + (long) numTerms * ( Long.BYTES + Integer.BYTES ) + (long) table.capacity() * Integer.BYTES;
+    }
+
+    private static ByteBuffer map( FileChannel channel, long position, long size ) throws IOException {
+        if ( size > Integer.MAX_VALUE ) {
+            throw new IOException( "a section of " + size + " bytes is too large to be memory-mapped" );
+        }
+        return channel.map( FileChannel.MapMode.READ_ONLY, position, size ).order( ByteOrder.LITTLE_ENDIAN );
+    }
+
+    /**
+     * Build the collection language model of a field from the index's vocabulary and write it to a file.
+     *
+     * @param index An index reader.
+     * @param field The field name.
+     * @param path  Path of the collection language model file (overwritten if it exists).
+     * @throws IOException
+     */
+    public static void write( IndexReader index, String field, Path path ) throws IOException {
+        Terms voc = MultiTerms.getTerms( index, field );
+        if ( voc == null ) {
+            throw new IllegalArgumentException( "field " + field + " is not indexed" );
+        }
+
+        // the term bytes go to a temporary file first since they are the last section of the model file
+        Path tmpBytes = path.resolveSibling( path.getFileName() + ".bytes.tmp" );
+        try {
+            long[] offsets = new long[1024];
+            long[] ttfs = new long[1024];
+            int[] dfs = new int[1024];
+            int numTerms = 0;
+            ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+            try ( FileChannel channel = FileChannel.open( tmpBytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+                TermsEnum termsEnum = voc.iterator();
+                BytesRef term;
+                long offset = 0;
+                while ( ( term = termsEnum.next() ) != null ) {
+                    offsets = ArrayUtil.grow( offsets, numTerms + 2 );
+                    ttfs = ArrayUtil.grow( ttfs, numTerms + 1 );
+                    dfs = ArrayUtil.grow( dfs, numTerms + 1 );
+                    offsets[numTerms] = offset;
+                    ttfs[numTerms] = termsEnum.totalTermFreq();
+                    dfs[numTerms] = termsEnum.docFreq();
+                    numTerms++;
+                    writeBytes( channel, buffer, term );
+                    offset += term.length;
+                }
+                offsets[numTerms] = offset;
+                flush( channel, buffer );
+            }
+
+            int[] table = newTable( numTerms );
+            try ( FileChannel in = FileChannel.open( tmpBytes, StandardOpenOption.READ ) ) {
+                ByteBuffer termBytes = map( in, 0, offsets[numTerms] );
+                BytesRef spare = new BytesRef();
+                for ( int ord = 0; ord < numTerms; ord++ ) {
+                    insert( table, term( termBytes, offsets[ord], offsets[ord + 1], spare ), ord );
+                }
+            }
+
+            long id = ThreadLocalRandom.current().nextLong();
+            writeFile( path, tmpBytes, numTerms, offsets, ttfs, dfs, table, index, field, id );
+        } finally {
+            Files.deleteIfExists( tmpBytes );
+        }
+    }
+
+    /**
+     * Write the collection language model of an updated index from the model of the index before the update.
+     * Segments are immutable, so only the statistics of the segments added by the update (new documents and merged
+     * segments) are added and those of the segments removed by it (merged away) are subtracted; the segments in both
+     * readers (possibly with new deletions, which do not change Lucene's statistics) are not read. Existing terms keep
+     * their ordinals and new terms get the next ones.
+     * <p>
+     * The new reader must be opened by DirectoryReader.openIfChanged( oldReader ) (or, e.g., a SearcherManager
+     * refresh), so that the unchanged segments are shared by both readers. If the old file was not written for the
+     * old reader, the whole model is rewritten from the new reader.
+     *
+     * @param oldReader The index reader before the update.
+     * @param oldPath   Path of the collection language model file of oldReader.
+     * @param newReader The index reader after the update.
+     * @param field     The field name.
+     * @param path      Path of the new collection language model file (it can be the same as oldPath; overwritten if it exists).
+     * @return The number of documents in the segments that were read (added and removed segments).
+     * @throws IOException
+     */
+    public static long update( DirectoryReader oldReader, Path oldPath, DirectoryReader newReader, String field, Path path ) throws IOException {
+        if ( !isValidFor( oldPath, oldReader ) ) {
+            write( newReader, field, path );
+            return newReader.maxDoc();
+        }
+        CollectionLM old = open( oldPath );
+        Map<Object, LeafReaderContext> oldLeaves = leavesByCore( oldReader );
+        Map<Object, LeafReaderContext> newLeaves = leavesByCore( newReader );
+
+        int numTerms = old.numTerms;
+        long[] offsets = new long[numTerms + 1];
+        long[] ttfs = new long[Math.max( 1, numTerms )];
+        int[] dfs = new int[Math.max( 1, numTerms )];
+        old.offsets.duplicate().get( offsets, 0, numTerms + 1 );
+        old.ttfs.duplicate().get( ttfs, 0, numTerms );
+        old.dfs.duplicate().get( dfs, 0, numTerms );
+
+        // removed segments: every term must be in the old model, otherwise the old file does not match oldReader
+        long numRead = 0;
+        for ( Map.Entry<Object, LeafReaderContext> entry : oldLeaves.entrySet() ) {
+            if ( newLeaves.containsKey( entry.getKey() ) ) {
+                continue;
+            }
+            numRead += entry.getValue().reader().maxDoc();
+            Terms terms = entry.getValue().reader().terms( field );
+            if ( terms == null ) {
+                continue;
+            }
+            TermsEnum termsEnum = terms.iterator();
+            BytesRef term;
+            while ( ( term = termsEnum.next() ) != null ) {
+                int ord = old.ordinal( term );
+                if ( ord < 0 ) {
+                    write( newReader, field, path );
+                    return newReader.maxDoc();
+                }
+                ttfs[ord] -= termsEnum.totalTermFreq();
+                dfs[ord] -= termsEnum.docFreq();
+            }
+        }
+
+        // added segments: new terms are appended to the vocabulary
+        Map<BytesRef, Integer> added = new HashMap<>();
+        List<BytesRef> addedTerms = new ArrayList<>();
+        for ( Map.Entry<Object, LeafReaderContext> entry : newLeaves.entrySet() ) {
+            if ( oldLeaves.containsKey( entry.getKey() ) ) {
+                continue;
+            }
+            numRead += entry.getValue().reader().maxDoc();
+            Terms terms = entry.getValue().reader().terms( field );
+            if ( terms == null ) {
+                continue;
+            }
+            TermsEnum termsEnum = terms.iterator();
+            BytesRef term;
+            while ( ( term = termsEnum.next() ) != null ) {
+                int ord = old.ordinal( term );
+                if ( ord < 0 ) {
+                    Integer addedOrd = added.get( term );
+                    if ( addedOrd == null ) {
+                        BytesRef copy = BytesRef.deepCopyOf( term );
+                        addedOrd = numTerms++;
+                        added.put( copy, addedOrd );
+                        addedTerms.add( copy );
+                        offsets = ArrayUtil.grow( offsets, numTerms + 1 );
+                        ttfs = ArrayUtil.grow( ttfs, numTerms );
+                        dfs = ArrayUtil.grow( dfs, numTerms );
+                        offsets[numTerms] = offsets[numTerms - 1] + copy.length;
+                    }
+                    ord = addedOrd;
+                }
+                ttfs[ord] += termsEnum.totalTermFreq();
+                dfs[ord] += termsEnum.docFreq();
+            }
+        }
+
+        // existing terms keep their slots if the table is still at most half full
+        int[] table;
+        if ( (long) numTerms * 2 <= old.table.capacity() ) {
+            table = new int[old.table.capacity()];
+            old.table.duplicate().get( table );
+        } else {
+            table = newTable( numTerms );
+            BytesRef spare = new BytesRef();
+            for ( int ord = 0; ord < old.numTerms; ord++ ) {
+                insert( table, term( old.bytes, offsets[ord], offsets[ord + 1], spare ), ord );
+            }
+        }
+        for ( int i = 0; i < addedTerms.size(); i++ ) {
+            insert( table, addedTerms.get( i ), old.numTerms + i );
+        }
+
+        Path tmpBytes = path.resolveSibling( path.getFileName() + ".bytes.tmp" );
+        try {
+            try ( FileChannel in = FileChannel.open( oldPath, StandardOpenOption.READ );
+                  FileChannel channel = FileChannel.open( tmpBytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+                long position = old.bytesStart();
+                long count = offsets[old.numTerms];
+                while ( count > 0 ) {
+                    long n = in.transferTo( position, count, channel );
+                    position += n;
+                    count -= n;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+                for ( BytesRef term : addedTerms ) {
+                    writeBytes( channel, buffer, term );
+                }
+                flush( channel, buffer );
+            }
+            writeFile( path, tmpBytes, numTerms, offsets, ttfs, dfs, table, newReader, field, old.id );
+        } finally {
+            Files.deleteIfExists( tmpBytes );
+        }
+        return numRead;
+    }
+
+    private static Map<Object, LeafReaderContext> leavesByCore( IndexReader index ) {
+        Map<Object, LeafReaderContext> leaves = new HashMap<>();
+        for ( LeafReaderContext context : index.leaves() ) {
+            IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+            // a segment without a core cache key is treated as changed
+            leaves.put( helper != null ? helper.getKey() : new Object(), context );
+        }
+        return leaves;
+    }
+
+    private static int[] newTable( int numTerms ) {
+        if ( numTerms > MAX_TABLE_SIZE / 2 ) {
+            throw new IllegalArgumentException( "too many terms for a collection language model: " + numTerms + ", must be at most " + ( MAX_TABLE_SIZE / 2 ) );
+        }
+        // load factor <= 0.5 (computed in long, as highestOneBit( numTerms ) << 2 overflows an int for 2^29 terms)
+        long size = Math.max( 2L, Long.highestOneBit( Math.max( 1, numTerms ) ) << 2 );
+        return new int[(int) Math.min( size, MAX_TABLE_SIZE )];
+    }
+
+    private static void insert( int[] table, BytesRef term, int ord ) {
+        int tableMask = table.length - 1;
+        int slot = StringHelper.murmurhash3_x86_32( term, 0 ) & tableMask;
+        while ( table[slot] != 0 ) {
+            slot = ( slot + 1 ) & tableMask;
+        }
+        table[slot] = ord + 1;
+    }
+
+    /**
+     * Write the model file from its sections (the term bytes are in tmpBytes) and move it to path atomically.
+     */
+    private static void writeFile( Path path, Path tmpBytes, int numTerms, long[] offsets, long[] ttfs, int[] dfs, int[] table,
+                                   IndexReader index, String field, long id ) throws IOException {
+        Path tmp = path.resolveSibling( path.getFileName() + ".tmp" );
+        ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+        try {
+            try ( FileChannel channel = FileChannel.open( tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+                buffer.putInt( MAGIC ).putInt( numTerms ).putInt( table.length ).putInt( index.maxDoc() )
+                        .putLong( index.getSumTotalTermFreq( field ) ).putLong( index.numDocs() )
+                        .putLong( Sidecars.generation( index ) ).putLong( id );
+                for ( int i = 0; i <= numTerms; i++ ) {
+                    if ( buffer.remaining() < Long.BYTES ) {
+                        flush( channel, buffer );
+                    }
+                    buffer.putLong( offsets[i] );
+                }
+                for ( int i = 0; i < numTerms; i++ ) {
+                    if ( buffer.remaining() < Long.BYTES ) {
+                        flush( channel, buffer );
+                    }
+                    buffer.putLong( ttfs[i] );
+                }
+                for ( int i = 0; i < numTerms; i++ ) {
+                    if ( buffer.remaining() < Integer.BYTES ) {
+                        flush( channel, buffer );
+                    }
+                    buffer.putInt( dfs[i] );
+                }
+                for ( int slot : table ) {
+                    if ( buffer.remaining() < Integer.BYTES ) {
+                        flush( channel, buffer );
+                    }
+                    buffer.putInt( slot );
+                }
+                flush( channel, buffer );
+                try ( FileChannel in = FileChannel.open( tmpBytes, StandardOpenOption.READ ) ) {
+                    long size = in.size();
+                    for ( long pos = 0; pos < size; ) {
+                        pos += in.transferTo( pos, size - pos, channel );
+                    }
+                }
+            }
+            Files.move( tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    private static void writeBytes( FileChannel channel, ByteBuffer buffer, BytesRef term ) throws IOException {
+        for ( int i = 0; i < term.length; ) {
+            if ( !buffer.hasRemaining() ) {
+                flush( channel, buffer );
+            }
+            int len = Math.min( buffer.remaining(), term.length - i );
+            buffer.put( term.bytes, term.offset + i, len );
+            i += len;
+        }
+    }
+
+    private static void flush( FileChannel channel, ByteBuffer buffer ) throws IOException {
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+        buffer.clear();
+    }
+
+    private static BytesRef term( ByteBuffer bytes, long start, long end, BytesRef spare ) {
+        int len = (int) ( end - start );
+        spare.bytes = ArrayUtil.grow( spare.bytes, len );
+        spare.offset = 0;
+        spare.length = len;
+        for ( int i = 0; i < len; i++ ) {
+            spare.bytes[i] = bytes.get( (int) start + i );
+        }
+        return spare;
+    }
+
+    /**
+     * @param term A term (UTF-8 bytes, as indexed).
+     * @return The ordinal of the term in the sorted vocabulary; or -1 if the term does not exist.
+     */
+    public int ordinal( BytesRef term ) {
+        int slot = StringHelper.murmurhash3_x86_32( term, 0 ) & mask;
+        int entry;
+        while ( ( entry = table.get( slot ) ) != 0 ) {
+            if ( termEquals( entry - 1, term ) ) {
+                return entry - 1;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        return -1;
+    }
+
+    private boolean termEquals( int ord, BytesRef term ) {
+        long start = offsets.get( ord );
+        if ( offsets.get( ord + 1 ) - start != term.length ) {
+            return false;
+        }
+        for ( int i = 0; i < term.length; i++ ) {
+            if ( bytes.get( (int) start + i ) != term.bytes[term.offset + i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The estimator of P(w|C) shared by the model and LMSimilarityOriginal: (totalTF(w) + 1) / (corpusLength + 1).
+     * Adding one keeps P(w|C) positive for terms that do not occur in the collection.
+     *
+     * @param totalTermFreq The total frequency of a term in the collection.
+     * @param corpusLength  The total length of the field in the collection.
+     * @return P(w|C).
+     */
+    public static double probability( long totalTermFreq, long corpusLength ) {
+        return ( totalTermFreq + 1D ) / ( corpusLength + 1D );
+    }
+
+    /**
+     * @param term A term (UTF-8 bytes, as indexed).
+     * @return P(term|C); a term that does not exist has a frequency of 0.
+     */
+    public double probability( BytesRef term ) {
+        int ord = ordinal( term );
+        return ord < 0 ? probability( 0, corpusLength ) : probabilityByOrd( ord );
+    }
+
+    /**
+     * @param term A term (as indexed).
+     * @return P(term|C); a term that does not exist has a frequency of 0.
+     */
+    public double probability( String term ) {
+        return probability( new BytesRef( term ) );
+    }
+
+    /**
+     * @param ord The ordinal of a term in the sorted vocabulary.
+     * @return P(term|C) of the term.
+     */
+    public double probabilityByOrd( int ord ) {
+        return probability( ttfs.get( ord ), corpusLength );
+    }
+
+    /**
+     * @param ord The ordinal of a term.
+     * @return The total frequency of the term in the collection.
+     */
+    public long totalTermFreqByOrd( int ord ) {
+        return ttfs.get( ord );
+    }
+
+    /**
+     * @param ord The ordinal of a term.
+     * @return The number of documents containing the term.
+     */
+    public int docFreqByOrd( int ord ) {
+        return dfs.get( ord );
+    }
+
+    /**
+     * @param ord The ordinal of a term in the sorted vocabulary.
+     * @return The term.
+     */
+    public BytesRef term( int ord ) {
+        return BytesRef.deepCopyOf( term( bytes, offsets.get( ord ), offsets.get( ord + 1 ), new BytesRef() ) );
+    }
+
+    /**
+     * @return The number of terms in the vocabulary.
+     */
+    public int numTerms() {
+        return numTerms;
+    }
+
+    /**
+     * @return The total length of the field in the collection.
+     */
+    public long corpusLength() {
+        return corpusLength;
+    }
+
+    /**
+     * @return The number of documents in the index the model was built from.
+     */
+    public long numDocs() {
+        return numDocs;
+    }
+
+    /**
+     * @return The maxDoc of the index the model was built from.
+     */
+    public int maxDoc() {
+        return maxDoc;
+    }
+
+    /**
+     * @return The commit generation of the index the model was built from; or -1 if it was not a DirectoryReader.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * @return The id of the model's term ordinals (a random number chosen by {@link #write} and kept by {@link #update}).
+     */
+    public long id() {
+        return id;
+    }
+
+}
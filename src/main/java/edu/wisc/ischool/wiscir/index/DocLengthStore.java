@@ -0,0 +1,268 @@
+package edu.wisc.ischool.wiscir.index;
+
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A precomputed, exact document length store for one field of an index.
+ * <p>
+ * The lengths are stored in a sidecar file as a flat array of little-endian ints indexed by docid
+ * (4 bytes per document) after a header:
+ * <pre>
+ * header:  int magic ("DLN1"), int maxDoc, long generation
+ * int[maxDoc]  the lengths, by docid
+ * </pre>
+ * The file is memory-mapped, so {@link #getLength(int)} is an O(1) lookup
+ * without any allocation, and the lengths live off-heap.
+ * <p>
+ * The store is written by a one-off pass over the index's norms. Indexes built with {@link BM25SimilarityOriginal}
+ * keep the exact field length in norms, so this is much faster than summing up term vectors for every document.
+ * The docids are only valid for the index commit the file was written for, whose generation and maxDoc are recorded
+ * in the header: use {@link #open(IndexReader, String, Path)} to open the store of a reader (it rewrites the file if
+ * it was written for another commit), and {@link #update(DirectoryReader, Path, DirectoryReader, String, Path)}
+ * after an incremental update, which only reads the norms of new segments.
+ * The mapped memory is released when the store is garbage collected.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class DocLengthStore {
+
+    /**
+     * "DLN1"
+     */
+    public static final int MAGIC = 0x444c4e31;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+
+    // each mapped chunk holds 2^28 ints (1GB) to stay below the 2GB limit of a MappedByteBuffer
+    private static final int CHUNK_BITS = 28;
+    private static final int CHUNK_MASK = ( 1 << CHUNK_BITS ) - 1;
+
+    private final IntBuffer[] chunks;
+    private final int numDocs;
+
+    private DocLengthStore( IntBuffer[] chunks, int numDocs ) {
+        this.chunks = chunks;
+        this.numDocs = numDocs;
+    }
+
+    /**
+     * The default location of the document length file of a field, i.e., "[field].doclen" in the index folder.
+     *
+     * @param pathIndex Path of the index.
+     * @param field     The field name.
+     * @return Path of the document length file.
+     */
+    public static Path defaultPath( Path pathIndex, String field ) {
+        return pathIndex.resolve( field + ".doclen" );
+    }
+
+    /**
+     * Open the document length store of a reader: the file is (re)written from the reader's norms first if it does
+     * not exist or was not written for the reader's commit (see {@link #isValidFor(Path, IndexReader)}).
+     *
+     * @param index An index reader.
+     * @param field The field name.
+     * @param path  Path of the document length file.
+     * @return The document length store.
+     * @throws IOException
+     */
+    public static DocLengthStore open( IndexReader index, String field, Path path ) throws IOException {
+        if ( !isValidFor( path, index ) ) {
+            write( index, field, path );
+        }
+        return open( path );
+    }
+
+    /**
+     * @param path  Path of a document length file.
+     * @param index An index reader.
+     * @return Whether the file exists, was written (or updated) for the reader's commit generation and maxDoc, and has
+     * the length of every document (maxDoc * 4 bytes after the header).
+     * @throws IOException
+     */
+    public static boolean isValidFor( Path path, IndexReader index ) throws IOException {
+        ByteBuffer header = Sidecars.readHeader( path, HEADER_BYTES );
+        return header != null && header.getInt( 0 ) == MAGIC && header.getInt( 4 ) == index.maxDoc()
+                && header.getLong( 8 ) == Sidecars.generation( index )
+                && Files.size( path ) == HEADER_BYTES + (long) index.maxDoc() * Integer.BYTES;
+    }
+
+    /**
+     * Open a document length file (without checking it against an index).
+     *
+     * @param path Path of the document length file.
+     * @return The document length store.
+     * @throws IOException
+     */
+    public static DocLengthStore open( Path path ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+            long size = channel.size();
+            if ( size < HEADER_BYTES ) {
+                throw new IOException( "not a document length file: " + path );
+            }
+            ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES ).order( ByteOrder.LITTLE_ENDIAN );
+            if ( header.getInt( 0 ) != MAGIC ) {
+                throw new IOException( "not a document length file: " + path );
+            }
+            int numDocs = header.getInt( 4 );
+            if ( size != HEADER_BYTES + (long) numDocs * Integer.BYTES ) {
+                throw new IOException( "corrupted document length file " + path + ": expected " + ( HEADER_BYTES + (long) numDocs * Integer.BYTES ) + " bytes but found " + size );
+            }
+            int numChunks = ( numDocs + CHUNK_MASK ) >>> CHUNK_BITS;
+            IntBuffer[] chunks = new IntBuffer[numChunks];
+            for ( int i = 0; i < numChunks; i++ ) {
+                long start = (long) i << CHUNK_BITS;
+                long len = Math.min( numDocs - start, 1L << CHUNK_BITS );
+                chunks[i] = channel.map( FileChannel.MapMode.READ_ONLY, HEADER_BYTES + start * Integer.BYTES, len * Integer.BYTES )
+                        .order( ByteOrder.LITTLE_ENDIAN ).asIntBuffer();
+            }
+            return new DocLengthStore( chunks, numDocs );
+        }
+    }
+
+    /**
+     * Compute the lengths of a field for all documents in the index (from the norms stored by
+     * {@link BM25SimilarityOriginal}) and write them to a document length file.
+     * Documents without the field have length 0. Deleted documents keep their lengths (norms are not removed until
+     * their segments are merged), so check the live docs if that matters.
+     *
+     * @param index An index reader.
+     * @param field The field name.
+     * @param path  Path of the document length file (overwritten if it exists).
+     * @throws IOException
+     */
+    public static void write( IndexReader index, String field, Path path ) throws IOException {
+        Path tmp = path.resolveSibling( path.getFileName() + ".tmp" );
+        ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+        try ( FileChannel channel = FileChannel.open( tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+            putHeader( buffer, index );
+            for ( LeafReaderContext context : index.leaves() ) {
+                writeLeaf( context, field, channel, buffer );
+            }
+            flush( channel, buffer );
+        }
+        Files.move( tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Write the document length file of an updated index from the file of the index before the update.
+     * Segments are immutable, so the lengths of a segment that exists in both readers (possibly with new deletions)
+     * are copied from the old file as a block; only the norms of new segments (new documents and merged segments)
+     * are read. The cost is thus proportional to the update rather than to the whole index (plus a file copy).
+     * <p>
+     * The new reader must be opened by DirectoryReader.openIfChanged( oldReader ) (or, e.g., a SearcherManager
+     * refresh), so that the unchanged segments are shared by both readers. If the old file was not written for the
+     * old reader's commit, the whole file is rewritten from the norms.
+     *
+     * @param oldReader The index reader before the update.
+     * @param oldPath   Path of the document length file of oldReader.
+     * @param newReader The index reader after the update.
+     * @param field     The field name.
+     * @param path      Path of the new document length file (it can be the same as oldPath; overwritten if it exists).
+     * @return The number of documents whose lengths were read from the norms.
+     * @throws IOException
+     */
+    public static long update( DirectoryReader oldReader, Path oldPath, DirectoryReader newReader, String field, Path path ) throws IOException {
+        if ( !isValidFor( oldPath, oldReader ) ) {
+            write( newReader, field, path );
+            return newReader.maxDoc();
+        }
+        // the docBase of each segment in the old reader, by its core
+        Map<Object, Integer> oldDocBases = new HashMap<>();
+        for ( LeafReaderContext context : oldReader.leaves() ) {
+            IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+            if ( helper != null ) {
+                oldDocBases.put( helper.getKey(), context.docBase );
+            }
+        }
+
+        long numRead = 0;
+        Path tmp = path.resolveSibling( path.getFileName() + ".tmp" );
+        ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+        try ( FileChannel in = FileChannel.open( oldPath, StandardOpenOption.READ );
+              FileChannel channel = FileChannel.open( tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+            putHeader( buffer, newReader );
+            for ( LeafReaderContext context : newReader.leaves() ) {
+                IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+                Integer oldDocBase = helper == null ? null : oldDocBases.get( helper.getKey() );
+                if ( oldDocBase == null ) {
+                    writeLeaf( context, field, channel, buffer );
+                    numRead += context.reader().maxDoc();
+                } else {
+                    flush( channel, buffer );
+                    long position = HEADER_BYTES + (long) oldDocBase * Integer.BYTES;
+                    long count = (long) context.reader().maxDoc() * Integer.BYTES;
+                    while ( count > 0 ) {
+                        long n = in.transferTo( position, count, channel );
+                        position += n;
+                        count -= n;
+                    }
+                }
+            }
+            flush( channel, buffer );
+        }
+        Files.move( tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        return numRead;
+    }
+
+    private static void putHeader( ByteBuffer buffer, IndexReader index ) throws IOException {
+        buffer.putInt( MAGIC ).putInt( index.maxDoc() ).putLong( Sidecars.generation( index ) );
+    }
+
+    private static void writeLeaf( LeafReaderContext context, String field, FileChannel channel, ByteBuffer buffer ) throws IOException {
+        if ( context.reader().getFieldInfos().fieldInfo( field ) != null
+                && !context.reader().getFieldInfos().fieldInfo( field ).hasNorms() ) {
+            throw new IllegalArgumentException( "field " + field + " does not have norms" );
+        }
+        NumericDocValues norms = context.reader().getNormValues( field );
+        int maxDoc = context.reader().maxDoc();
+        for ( int doc = 0; doc < maxDoc; doc++ ) {
+            int length = norms != null && norms.advanceExact( doc ) ? (int) norms.longValue() : 0;
+            if ( !buffer.hasRemaining() ) {
+                flush( channel, buffer );
+            }
+            buffer.putInt( length );
+        }
+    }
+
+    private static void flush( FileChannel channel, ByteBuffer buffer ) throws IOException {
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @param docid The internal ID of a document.
+     * @return The length of the field in the document.
+     */
+    public int getLength( int docid ) {
+        return chunks[docid >>> CHUNK_BITS].get( docid & CHUNK_MASK );
+    }
+
+    /**
+     * @return The number of documents in the store (the maxDoc of the index it was written from).
+     */
+    public int numDocs() {
+        return numDocs;
+    }
+
+}
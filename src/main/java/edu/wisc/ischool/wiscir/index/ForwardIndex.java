@@ -0,0 +1,545 @@
+package edu.wisc.ischool.wiscir.index;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A forward index (document vectors) of one field, stored as a sidecar file of an index.
+ * <p>
+ * Each document vector is a list of (term ordinal, frequency) entries sorted by term ordinal, encoded as
+ * a vint number of entries followed by vint ordinal deltas and vint frequencies. The term ordinals are those of
+ * the {@link CollectionLM} of the same field (i.e., ordinals in the sorted vocabulary), so
+ * {@link CollectionLM#term(int)} and {@link CollectionLM#probabilityByOrd(int)} can be used for the entries.
+ * <p>
+ * The file is:
+ * <pre>
+ * header:  int magic ("FWD2"), int maxDoc, long generation, long clmId
+ * long[maxDoc + 1]  offsets of the document vectors in the data
+ * byte[]            the encoded document vectors
+ * </pre>
+ * It is memory-mapped, and reading a document vector by {@link DocVector} does not allocate any objects,
+ * which is much cheaper than Lucene's term vectors (no decompression, no BytesRef terms, no PostingsEnum per entry).
+ * <p>
+ * The docids are only valid for the index commit the file was written for: the header records its generation and
+ * maxDoc, and the id of the collection language model whose ordinals it uses. Use
+ * {@link #open(IndexReader, String, CollectionLM, Path)} to open the forward index of a reader (it rewrites the file
+ * if it was written for another commit or model), and {@link #update} after an incremental update, which copies the
+ * vectors of unchanged segments and only reads the term vectors of new segments.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class ForwardIndex {
+
+    /**
+     * "FWD1"
+     */
+    public static final int MAGIC = 0x46574432;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    // the data is mapped in chunks of at most 1GB (each starting at a document boundary) to stay below the 2GB limit of a MappedByteBuffer
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final int maxDoc;
+    private final LongBuffer offsets;
+    private final ByteBuffer[] chunks;
+    private final long[] chunkStarts;
+
+    // keeps the JIT from eliminating the reads in prefetch()
+    private volatile byte prefetchSink;
+
+    private ForwardIndex( int maxDoc, LongBuffer offsets, ByteBuffer[] chunks, long[] chunkStarts ) {
+        this.maxDoc = maxDoc;
+        this.offsets = offsets;
+        this.chunks = chunks;
+        this.chunkStarts = chunkStarts;
+    }
+
+    /**
+     * The default location of the forward index file of a field, i.e., "[field].fwd" in the index folder.
+     *
+     * @param pathIndex Path of the index.
+     * @param field     The field name.
+     * @return Path of the forward index file.
+     */
+    public static Path defaultPath( Path pathIndex, String field ) {
+        return pathIndex.resolve( field + ".fwd" );
+    }
+
+    /**
+     * Open the forward index of a reader: the file is (re)written from the reader first if it does not exist or was
+     * not written for the reader's commit and the given model (see {@link #isValidFor(Path, IndexReader, CollectionLM)}).
+     *
+     * @param index An index reader.
+     * @param field The field name.
+     * @param clm   The collection language model of the field (providing the term ordinals), opened for the same reader.
+     * @param path  Path of the forward index file.
+     * @return The forward index.
+     * @throws IOException
+     */
+    public static ForwardIndex open( IndexReader index, String field, CollectionLM clm, Path path ) throws IOException {
+        if ( !isValidFor( path, index, clm ) ) {
+            write( index, field, clm, path );
+        }
+        return open( path );
+    }
+
+    /**
+     * @param path  Path of a forward index file.
+     * @param index An index reader.
+     * @param clm   A collection language model.
+     * @return Whether the file exists and was written (or updated) for the reader's commit generation and maxDoc,
+     * with the term ordinals of the model.
+     * @throws IOException
+     */
+    public static boolean isValidFor( Path path, IndexReader index, CollectionLM clm ) throws IOException {
+        ByteBuffer header = Sidecars.readHeader( path, HEADER_BYTES );
+        return header != null && header.getInt( 0 ) == MAGIC && header.getInt( 4 ) == index.maxDoc()
+                && header.getLong( 8 ) == Sidecars.generation( index ) && header.getLong( 16 ) == clm.id();
+    }
+
+    /**
+     * Open a forward index file (without checking it against an index; the caller must make sure that it was written
+     * for the same index commit, e.g., by {@link #isValidFor(Path, IndexReader, CollectionLM)}, or use
+     * {@link #open(IndexReader, String, CollectionLM, Path)} instead).
+     *
+     * @param path Path of the forward index file.
+     * @return The forward index.
+     * @throws IOException
+     */
+    public static ForwardIndex open( Path path ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+            ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES ).order( ByteOrder.LITTLE_ENDIAN );
+            if ( header.getInt( 0 ) != MAGIC ) {
+                throw new IOException( "not a forward index file: " + path );
+            }
+            int maxDoc = header.getInt( 4 );
+            long offsetsBytes = ( maxDoc + 1L ) * Long.BYTES;
+            LongBuffer offsets = channel.map( FileChannel.MapMode.READ_ONLY, HEADER_BYTES, offsetsBytes ).order( ByteOrder.LITTLE_ENDIAN ).asLongBuffer();
+            long dataStart = HEADER_BYTES + offsetsBytes;
+            long dataBytes = offsets.get( maxDoc );
+            if ( dataStart + dataBytes != channel.size() ) {
+                throw new IOException( "corrupted forward index file " + path + ": expected " + ( dataStart + dataBytes ) + " bytes but found " + channel.size() );
+            }
+
+            long[] starts = new long[4];
+            int numChunks = 0;
+            long start = 0;
+            for ( int doc = 0; doc < maxDoc; doc++ ) {
+                if ( offsets.get( doc + 1 ) - start > MAX_CHUNK_BYTES && offsets.get( doc ) > start ) {
+                    if ( numChunks + 1 >= starts.length ) {
+                        starts = Arrays.copyOf( starts, starts.length * 2 );
+                    }
+                    starts[numChunks++] = start;
+                    start = offsets.get( doc );
+                }
+            }
+            starts[numChunks++] = start;
+            long[] chunkStarts = Arrays.copyOf( starts, numChunks );
+            ByteBuffer[] chunks = new ByteBuffer[numChunks];
+            for ( int i = 0; i < numChunks; i++ ) {
+                long end = i + 1 < numChunks ? chunkStarts[i + 1] : dataBytes;
+                chunks[i] = channel.map( FileChannel.MapMode.READ_ONLY, dataStart + chunkStarts[i], end - chunkStarts[i] );
+            }
+            return new ForwardIndex( maxDoc, offsets, chunks, chunkStarts );
+        }
+    }
+
+    /**
+     * Write the forward index of a field from the index's term vectors (the field must store term vectors,
+     * as LuceneBuildIndex.fieldTypeText does). Documents without a term vector have an empty vector. Deleted documents
+     * keep their vectors (as Lucene keeps their term vectors and statistics until their segments are merged), so that
+     * {@link #update} can copy the vectors of a segment as a block after more of its documents are deleted; check the
+     * reader's liveDocs if deleted documents matter.
+     *
+     * @param index An index reader.
+     * @param field The field name.
+     * @param clm   The collection language model of the field (providing the term ordinals), built from the same index.
+     * @param path  Path of the forward index file (overwritten if it exists).
+     * @throws IOException
+     */
+    public static void write( IndexReader index, String field, CollectionLM clm, Path path ) throws IOException {
+        int maxDoc = index.maxDoc();
+        long[] offsets = new long[maxDoc + 1];
+        Path tmpData = path.resolveSibling( path.getFileName() + ".data.tmp" );
+        try {
+            try ( DataWriter data = new DataWriter( tmpData, clm ) ) {
+                for ( LeafReaderContext context : index.leaves() ) {
+                    data.addLeaf( context, field, offsets );
+                }
+                offsets[maxDoc] = data.offset;
+            }
+            writeFile( path, tmpData, offsets, index, clm );
+        } finally {
+            Files.deleteIfExists( tmpData );
+        }
+    }
+
+    /**
+     * Write the forward index of an updated index from the forward index of the index before the update.
+     * Segments are immutable, so the vectors of a segment that exists in both readers are copied from the old file
+     * as a block; only the term vectors of new segments (new documents and merged segments) are read. The cost is thus
+     * proportional to the update rather than to the whole index (plus a file copy).
+     * <p>
+     * The new reader must be opened by DirectoryReader.openIfChanged( oldReader ), and clm must be the model of the
+     * new reader updated by {@link CollectionLM#update} from the model of the old file (so the term ordinals are
+     * the same). Otherwise, the whole file is rewritten from the new reader's term vectors.
+     *
+     * @param oldReader The index reader before the update.
+     * @param oldPath   Path of the forward index file of oldReader.
+     * @param newReader The index reader after the update.
+     * @param field     The field name.
+     * @param clm       The collection language model of the field for newReader.
+     * @param path      Path of the new forward index file (it can be the same as oldPath; overwritten if it exists).
+     * @return The number of documents whose term vectors were read.
+     * @throws IOException
+     */
+    public static long update( DirectoryReader oldReader, Path oldPath, DirectoryReader newReader, String field, CollectionLM clm, Path path ) throws IOException {
+        ByteBuffer header = Sidecars.readHeader( oldPath, HEADER_BYTES );
+        if ( header == null || header.getInt( 0 ) != MAGIC || header.getInt( 4 ) != oldReader.maxDoc()
+                || header.getLong( 8 ) != Sidecars.generation( oldReader ) || header.getLong( 16 ) != clm.id() ) {
+            write( newReader, field, clm, path );
+            return newReader.maxDoc();
+        }
+        ForwardIndex old = open( oldPath );
+        long oldDataStart = HEADER_BYTES + ( old.maxDoc + 1L ) * Long.BYTES;
+        // the docBase of each segment in the old reader, by its core
+        Map<Object, Integer> oldDocBases = new HashMap<>();
+        for ( LeafReaderContext context : oldReader.leaves() ) {
+            IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+            if ( helper != null ) {
+                oldDocBases.put( helper.getKey(), context.docBase );
+            }
+        }
+
+        int maxDoc = newReader.maxDoc();
+        long[] offsets = new long[maxDoc + 1];
+        long numRead = 0;
+        Path tmpData = path.resolveSibling( path.getFileName() + ".data.tmp" );
+        try {
+            try ( FileChannel in = FileChannel.open( oldPath, StandardOpenOption.READ );
+                  DataWriter data = new DataWriter( tmpData, clm ) ) {
+                for ( LeafReaderContext context : newReader.leaves() ) {
+                    IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+                    Integer oldDocBase = helper == null ? null : oldDocBases.get( helper.getKey() );
+                    if ( oldDocBase == null ) {
+                        data.addLeaf( context, field, offsets );
+                        numRead += context.reader().maxDoc();
+                    } else {
+                        long start = old.offsets.get( oldDocBase );
+                        for ( int doc = 0; doc < context.reader().maxDoc(); doc++ ) {
+                            offsets[context.docBase + doc] = data.offset + old.offsets.get( oldDocBase + doc ) - start;
+                        }
+                        data.copy( in, oldDataStart + start, old.offsets.get( oldDocBase + context.reader().maxDoc() ) - start );
+                    }
+                }
+                offsets[maxDoc] = data.offset;
+            }
+            writeFile( path, tmpData, offsets, newReader, clm );
+        } finally {
+            Files.deleteIfExists( tmpData );
+        }
+        return numRead;
+    }
+
+    /**
+     * Write the file from the offsets and the encoded vectors (in tmpData) and move it to path atomically.
+     */
+    private static void writeFile( Path path, Path tmpData, long[] offsets, IndexReader index, CollectionLM clm ) throws IOException {
+        Path tmp = path.resolveSibling( path.getFileName() + ".tmp" );
+        ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+        try {
+            try ( FileChannel channel = FileChannel.open( tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+                buffer.putInt( MAGIC ).putInt( index.maxDoc() ).putLong( Sidecars.generation( index ) ).putLong( clm.id() );
+                for ( long offset : offsets ) {
+                    if ( buffer.remaining() < Long.BYTES ) {
+                        flush( channel, buffer );
+                    }
+                    buffer.putLong( offset );
+                }
+                flush( channel, buffer );
+                try ( FileChannel in = FileChannel.open( tmpData, StandardOpenOption.READ ) ) {
+                    long size = in.size();
+                    for ( long pos = 0; pos < size; ) {
+                        pos += in.transferTo( pos, size - pos, channel );
+                    }
+                }
+            }
+            Files.move( tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    /**
+     * Encodes document vectors into the data section (a temporary file) and keeps track of the data size.
+     */
+    private static final class DataWriter implements Closeable {
+
+        private final FileChannel channel;
+        private final CollectionLM clm;
+        private final ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+        private int[] ords = new int[256];
+        private int[] freqs = new int[256];
+        private long offset;
+
+        DataWriter( Path path, CollectionLM clm ) throws IOException {
+            this.channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE );
+            this.clm = clm;
+        }
+
+        /**
+         * Encode the vectors of all documents of a segment (their offsets are set in offsets by global docid).
+         */
+        void addLeaf( LeafReaderContext context, String field, long[] offsets ) throws IOException {
+            int maxDoc = context.reader().maxDoc();
+            for ( int doc = 0; doc < maxDoc; doc++ ) {
+                offsets[context.docBase + doc] = offset;
+                int size = 0;
+                Terms vector = context.reader().getTermVector( doc, field );
+                if ( vector != null ) {
+                    TermsEnum termsEnum = vector.iterator();
+                    BytesRef term;
+                    while ( ( term = termsEnum.next() ) != null ) {
+                        int ord = clm.ordinal( term );
+                        if ( ord < 0 ) {
+                            throw new IllegalArgumentException( "term " + term.utf8ToString() + " of document " + ( context.docBase + doc ) + " is not in the collection language model" );
+                        }
+                        if ( size == ords.length ) {
+                            ords = Arrays.copyOf( ords, size * 2 );
+                            freqs = Arrays.copyOf( freqs, size * 2 );
+                        }
+                        ords[size] = ord;
+                        freqs[size] = (int) termsEnum.totalTermFreq();
+                        size++;
+                    }
+                }
+                // the entries must be sorted by ordinal (ordinals appended by CollectionLM.update are not in term order)
+                sortByOrd( size );
+                // at most 5 bytes for each vint
+                if ( buffer.remaining() < 5 ) {
+                    flush( channel, buffer );
+                }
+                offset += writeVInt( buffer, size );
+                int prev = 0;
+                for ( int i = 0; i < size; i++ ) {
+                    if ( buffer.remaining() < 10 ) {
+                        flush( channel, buffer );
+                    }
+                    offset += writeVInt( buffer, ords[i] - prev );
+                    offset += writeVInt( buffer, freqs[i] );
+                    prev = ords[i];
+                }
+            }
+        }
+
+        private void sortByOrd( int size ) {
+            for ( int i = 1; i < size; i++ ) {
+                if ( ords[i - 1] > ords[i] ) {
+                    long[] packed = new long[size];
+                    for ( int j = 0; j < size; j++ ) {
+                        packed[j] = ( (long) ords[j] << 32 ) | ( freqs[j] & 0xFFFFFFFFL );
+                    }
+                    Arrays.sort( packed );
+                    for ( int j = 0; j < size; j++ ) {
+                        ords[j] = (int) ( packed[j] >>> 32 );
+                        freqs[j] = (int) packed[j];
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Copy encoded vectors from another file.
+         */
+        void copy( FileChannel in, long position, long count ) throws IOException {
+            flush( channel, buffer );
+            offset += count;
+            while ( count > 0 ) {
+                long n = in.transferTo( position, count, channel );
+                position += n;
+                count -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush( channel, buffer );
+            } finally {
+                channel.close();
+            }
+        }
+
+    }
+
+    private static void flush( FileChannel channel, ByteBuffer buffer ) throws IOException {
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+        buffer.clear();
+    }
+
+    private static int writeVInt( ByteBuffer buffer, int i ) {
+        int n = 1;
+        while ( ( i & ~0x7F ) != 0 ) {
+            buffer.put( (byte) ( ( i & 0x7F ) | 0x80 ) );
+            i >>>= 7;
+            n++;
+        }
+        buffer.put( (byte) i );
+        return n;
+    }
+
+    /**
+     * @return The number of documents (the maxDoc of the index it was written from).
+     */
+    public int maxDoc() {
+        return maxDoc;
+    }
+
+    /**
+     * @return A new (reusable) document vector cursor. A cursor should only be used by one thread at a time.
+     */
+    public DocVector newDocVector() {
+        return new DocVector();
+    }
+
+    /**
+     * Load the document vectors of a list of documents into memory (page cache), in the order of their positions in the file.
+     * Reading them afterwards (e.g., the top-k results for pseudo-relevance feedback) does not wait on random disk reads.
+     *
+     * @param docids A list of internal document IDs.
+     */
+    public void prefetch( int[] docids ) {
+        int[] sorted = docids.clone();
+        Arrays.sort( sorted );
+        byte sum = 0;
+        for ( int docid : sorted ) {
+            long start = offsets.get( docid );
+            long end = offsets.get( docid + 1 );
+            int chunk = chunkOf( start );
+            ByteBuffer bytes = chunks[chunk];
+            // touch one byte per (4KB) page of the document vector
+            for ( long pos = start; pos < end; pos += 4096 ) {
+                sum += bytes.get( (int) ( pos - chunkStarts[chunk] ) );
+            }
+            sum += bytes.get( (int) ( end - 1 - chunkStarts[chunk] ) );
+        }
+        prefetchSink = sum;
+    }
+
+    private int chunkOf( long offset ) {
+        int chunk = Arrays.binarySearch( chunkStarts, offset );
+        return chunk >= 0 ? chunk : -chunk - 2;
+    }
+
+    /**
+     * A cursor over the entries of a document vector:
+     * <pre>
+     * vector.reset( docid );
+     * while ( vector.next() ) {
+     *     int ord = vector.ord();
+     *     int freq = vector.freq();
+     * }
+     * </pre>
+     */
+    public class DocVector {
+
+        private ByteBuffer bytes;
+        private int pos;
+        private int size;
+        private int remaining;
+        private int ord;
+        private int freq;
+
+        private DocVector() {
+        }
+
+        /**
+         * Move the cursor to the beginning of a document's vector.
+         *
+         * @param docid The internal ID of a document.
+         * @return This cursor.
+         */
+        public DocVector reset( int docid ) {
+            long start = offsets.get( docid );
+            int chunk = chunkOf( start );
+            bytes = chunks[chunk];
+            pos = (int) ( start - chunkStarts[chunk] );
+            size = readVInt();
+            remaining = size;
+            ord = 0;
+            freq = 0;
+            return this;
+        }
+
+        /**
+         * @return Whether the cursor moved to the next entry; false if there are no more entries.
+         */
+        public boolean next() {
+            if ( remaining == 0 ) {
+                return false;
+            }
+            remaining--;
+            ord += readVInt();
+            freq = readVInt();
+            return true;
+        }
+
+        /**
+         * @return The number of entries (unique terms) in the document vector.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return The term ordinal of the current entry.
+         */
+        public int ord() {
+            return ord;
+        }
+
+        /**
+         * @return The frequency of the term in the document.
+         */
+        public int freq() {
+            return freq;
+        }
+
+        private int readVInt() {
+            int value = 0;
+            for ( int shift = 0; ; shift += 7 ) {
+                byte b = bytes.get( pos++ );
+                value |= ( b & 0x7F ) << shift;
+                if ( b >= 0 ) {
+                    return value;
+                }
+            }
+        }
+
+    }
+
+}
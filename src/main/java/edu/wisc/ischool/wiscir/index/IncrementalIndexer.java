@@ -0,0 +1,180 @@
+package edu.wisc.ischool.wiscir.index;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a delta (new or changed documents, and deleted docnos) to an existing index, keyed on docnos.
+ * <p>
+ * A document in the delta replaces the indexed document with the same docno, or is added if there is none
+ * ({@link IndexWriter#updateDocument} on the docno term, which is an atomic delete-then-add). Lucene segments are
+ * immutable, so an update only writes new segments for the delta and marks the replaced documents as deleted
+ * in the old segments; the cost is proportional to the delta, not to the index (merges may later rewrite some segments
+ * in the background, as for any indexing).
+ * <p>
+ * Docids change with an update (new documents get new docids and merges renumber documents), so docid-keyed
+ * sidecars must follow the new reader:
+ * <ul>
+ *   <li>{@link DocLengthStore#update} copies the lengths of unchanged segments and reads only the norms of new ones;</li>
+ *   <li>DocnoMapper is cached per reader, so a refreshed reader gets its own (consistent) mapping;</li>
+ *   <li>{@link CollectionLM#update} subtracts the statistics of removed segments and adds those of new segments,
+ *   keeping the ordinals of existing terms;</li>
+ *   <li>{@link ForwardIndex#update} copies the vectors of unchanged segments and reads only the term vectors of new ones.</li>
+ * </ul>
+ * Each sidecar records the commit generation and maxDoc it was written for. The index is committed before the
+ * sidecars are updated, so if the process stops in between, the sidecars are stale; opening them for a reader
+ * (e.g., {@link CollectionLM#open(org.apache.lucene.index.IndexReader, String, Path)}) detects this and rebuilds them.
+ * The writer must be opened with OpenMode.CREATE_OR_APPEND and the same analyzer and similarity as the index.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class IncrementalIndexer {
+
+    private final IndexWriter writer;
+    private final String fieldDocno;
+
+    private long numUpserted;
+    private long numDeleted;
+
+    /**
+     * @param writer     An index writer of the existing index (OpenMode.CREATE_OR_APPEND).
+     * @param fieldDocno The name of the field you used for storing docnos (external document IDs).
+     */
+    public IncrementalIndexer( IndexWriter writer, String fieldDocno ) {
+        this.writer = writer;
+        this.fieldDocno = fieldDocno;
+    }
+
+    /**
+     * Add or replace (by docno) all documents from a delta corpus. The reader is consumed but not closed;
+     * the writer is not committed.
+     *
+     * @param reader A reader of a trectext delta corpus.
+     * @return The number of documents added or replaced.
+     * @throws IOException
+     */
+    public long upsert( TrecTextReader reader ) throws IOException {
+        long count = 0;
+        TrecTextDocument doc;
+        while ( ( doc = reader.next() ) != null ) {
+            if ( doc.getDocno() == null || doc.getDocno().isEmpty() ) {
+                throw new IOException( "cannot update a document without a docno: " + doc );
+            }
+            writer.updateDocument( new Term( fieldDocno, doc.getDocno() ), LuceneBuildIndex.createDocument( doc ) );
+            count++;
+        }
+        numUpserted += count;
+        return count;
+    }
+
+    /**
+     * Delete documents by their docnos (docnos not in the index are ignored). The writer is not committed.
+     *
+     * @param docnos A list of docnos.
+     * @throws IOException
+     */
+    public void delete( List<String> docnos ) throws IOException {
+        Term[] terms = new Term[docnos.size()];
+        for ( int i = 0; i < terms.length; i++ ) {
+            terms[i] = new Term( fieldDocno, docnos.get( i ) );
+        }
+        writer.deleteDocuments( terms );
+        numDeleted += terms.length;
+    }
+
+    /**
+     * Delete documents by the docnos listed in a file (one docno per line; blank lines are skipped).
+     *
+     * @param path Path of the file.
+     * @return The number of docnos in the file.
+     * @throws IOException
+     */
+    public long delete( Path path ) throws IOException {
+        List<String> docnos = new ArrayList<>();
+        try ( BufferedReader in = Files.newBufferedReader( path, StandardCharsets.UTF_8 ) ) {
+            String line;
+            while ( ( line = in.readLine() ) != null ) {
+                if ( !line.trim().isEmpty() ) {
+                    docnos.add( line.trim() );
+                }
+            }
+        }
+        delete( docnos );
+        return docnos.size();
+    }
+
+    /**
+     * Commit the update and bring a docid-keyed document length file up to date.
+     * Same as commit( oldReader, field, pathDocLength, null, null ).
+     *
+     * @param oldReader     A reader of the index before the update (opened before any change was committed); it is not closed.
+     * @param field         The field of the document length file.
+     * @param pathDocLength Path of the document length file of oldReader (updated in place).
+     * @return A reader of the updated index (opened by DirectoryReader.openIfChanged, so it shares the unchanged segments).
+     * @throws IOException
+     */
+    public DirectoryReader commit( DirectoryReader oldReader, String field, Path pathDocLength ) throws IOException {
+        return commit( oldReader, field, pathDocLength, null, null );
+    }
+
+    /**
+     * Commit the update and bring the sidecar files of a field up to date. A path can be null, and a file that does
+     * not exist is skipped (it is built when it is first opened for a reader). The forward index is only updated
+     * together with the collection language model (it uses the model's term ordinals).
+     *
+     * @param oldReader     A reader of the index before the update (opened before any change was committed); it is not closed.
+     * @param field         The field of the sidecar files.
+     * @param pathDocLength Path of the document length file of oldReader (updated in place).
+     * @param pathCLM       Path of the collection language model file of oldReader (updated in place).
+     * @param pathForward   Path of the forward index file of oldReader (updated in place).
+     * @return A reader of the updated index (opened by DirectoryReader.openIfChanged, so it shares the unchanged segments).
+     * @throws IOException
+     */
+    public DirectoryReader commit( DirectoryReader oldReader, String field, Path pathDocLength, Path pathCLM, Path pathForward ) throws IOException {
+        writer.commit();
+        DirectoryReader newReader = DirectoryReader.openIfChanged( oldReader );
+        if ( newReader == null ) {
+            // nothing changed, but the caller owns (and closes) the returned reader
+            oldReader.incRef();
+            return oldReader;
+        }
+        if ( pathDocLength != null && Files.exists( pathDocLength ) ) {
+            DocLengthStore.update( oldReader, pathDocLength, newReader, field, pathDocLength );
+        }
+        if ( pathCLM != null && Files.exists( pathCLM ) ) {
+            CollectionLM.update( oldReader, pathCLM, newReader, field, pathCLM );
+            if ( pathForward != null && Files.exists( pathForward ) ) {
+                ForwardIndex.update( oldReader, pathForward, newReader, field, CollectionLM.open( pathCLM ), pathForward );
+            }
+        }
+        return newReader;
+    }
+
+    /**
+     * @return The number of documents added or replaced so far.
+     */
+    public long getNumUpserted() {
+        return numUpserted;
+    }
+
+    /**
+     * @return The number of docnos requested for deletion so far.
+     */
+    public long getNumDeleted() {
+        return numDeleted;
+    }
+
+}
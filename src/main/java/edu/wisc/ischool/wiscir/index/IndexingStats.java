@@ -0,0 +1,391 @@
+package edu.wisc.ischool.wiscir.index;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.AnalyzerWrapper;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LiveIndexWriterConfig;
+import org.apache.lucene.index.MergeScheduler;
+import org.apache.lucene.util.InfoStream;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Indexing throughput statistics: docs/sec and bytes/sec, flushes (count, RAM used, flushed size, time), merges
+ * (count, docs, time), and how the indexing time splits between parsing the corpus, analyzing the text, and
+ * writing the index (addDocument minus analysis).
+ * <p>
+ * Flushes and merges are observed through the IndexWriter's InfoStream (set this object with
+ * IndexWriterConfig.setInfoStream), and analysis time through a wrapped analyzer ({@link #wrap(Analyzer)}), e.g.,
+ * <pre>
+ * IndexingStats stats = new IndexingStats().setAutoTune( true );
+ * IndexWriterConfig config = new IndexWriterConfig( stats.wrap( analyzer ) );
+ * config.setInfoStream( stats );
+ * IndexWriter writer = new IndexWriter( dir, config );
+ * stats.start( writer );
+ * while ( ( doc = stats.next( reader ) ) != null ) {
+ *     stats.addDocument( writer, createDocument( doc ) );
+ * }
+ * stats.close();
+ * </pre>
+ * The times are summed over all threads, so with several indexing threads the split is a split of thread time.
+ * The bytes are the characters of the parsed documents (the same as bytes for ASCII text).
+ * <p>
+ * In the adaptive mode, at every report the RAM buffer and the merge threads are tuned (both are live settings
+ * of IndexWriter):
+ * <ul>
+ *   <li>the RAM buffer is halved (down to 16MB) if less than 25% of the maximum heap is free; otherwise it grows
+ *   by 1.5x (up to maxRAMBufferSizeMB and a quarter of the free heap) as long as the previous growth improved
+ *   bytes/sec by at least 5% (larger buffers mean fewer flushes and merges, until they stop helping);</li>
+ *   <li>a ConcurrentMergeScheduler gets one more merge thread (up to half of the processors) if the finished merges
+ *   kept all merge threads busy in the last interval, and one fewer (down to 1) if they were mostly idle.</li>
+ * </ul>
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class IndexingStats extends InfoStream {
+
+    private static final Pattern FLUSHED = Pattern.compile( "^flushed: segment=\\S+ ramUsed=([\\d,.]+) MB newFlushedSize=([\\d,.]+) MB" );
+    private static final Pattern FLUSH_TIME = Pattern.compile( "^flush time ([\\d,.]+) msec" );
+    private static final Pattern MERGE_TIME = Pattern.compile( "^merge time (\\d+) msec for (\\d+) docs" );
+
+    private static final double MB = 1024 * 1024;
+
+    private final LongAdder numDocs = new LongAdder();
+    private final LongAdder numBytes = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder analysisNanos = new LongAdder();
+    private final LongAdder addNanos = new LongAdder();
+
+    private final AtomicLong numFlushes = new AtomicLong();
+    private final AtomicLong flushRamBytes = new AtomicLong();
+    private final AtomicLong flushedBytes = new AtomicLong();
+    private final AtomicLong flushMicros = new AtomicLong();
+    private final AtomicLong numMerges = new AtomicLong();
+    private final AtomicLong mergedDocs = new AtomicLong();
+    private final AtomicLong mergeMillis = new AtomicLong();
+
+    private long reportIntervalMillis = 10000;
+    private PrintStream out = System.out;
+    private boolean autoTune = false;
+    private double maxRAMBufferSizeMB = 1024;
+
+    private IndexWriter writer;
+    private ScheduledExecutorService reporter;
+    private long startNanos;
+
+    // the state of the last report (only accessed by the reporter thread)
+    private long lastNanos;
+    private long lastBytes;
+    private long lastMergeMillis;
+    private double lastBytesPerSec;
+    private boolean growing = true;
+    private boolean grew = false;
+
+    /**
+     * @param reportIntervalMillis How often to print (and tune, in the adaptive mode); 0 to disable (default: 10000).
+     */
+    public IndexingStats setReportIntervalMillis( long reportIntervalMillis ) {
+        this.reportIntervalMillis = reportIntervalMillis;
+        return this;
+    }
+
+    /**
+     * @param out Where to print the reports (default: System.out).
+     */
+    public IndexingStats setOut( PrintStream out ) {
+        this.out = out;
+        return this;
+    }
+
+    /**
+     * @param autoTune Whether to tune the RAM buffer and the merge threads from the observed throughput and heap headroom (default: false).
+     */
+    public IndexingStats setAutoTune( boolean autoTune ) {
+        this.autoTune = autoTune;
+        return this;
+    }
+
+    /**
+     * @param maxRAMBufferSizeMB The largest RAM buffer the adaptive mode may set (default: 1024).
+     */
+    public IndexingStats setMaxRAMBufferSizeMB( double maxRAMBufferSizeMB ) {
+        this.maxRAMBufferSizeMB = maxRAMBufferSizeMB;
+        return this;
+    }
+
+    /**
+     * @return An analyzer that works the same as the given one but measures the analysis time.
+     */
+    public Analyzer wrap( Analyzer analyzer ) {
+        return new AnalyzerWrapper( analyzer.getReuseStrategy() ) {
+            @Override
+            protected Analyzer getWrappedAnalyzer( String fieldName ) {
+                return analyzer;
+            }
+
+            @Override
+            protected TokenStreamComponents wrapComponents( String fieldName, TokenStreamComponents components ) {
+                return new TokenStreamComponents( components.getSource(), new TimingFilter( components.getTokenStream() ) );
+            }
+        };
+    }
+
+    /**
+     * Start the clock (and the periodic reports and tuning, if the report interval is positive).
+     *
+     * @param writer The index writer (whose config has this object as the InfoStream).
+     */
+    public synchronized void start( IndexWriter writer ) {
+        if ( this.writer != null ) {
+            throw new IllegalStateException( "the stats have already started" );
+        }
+        this.writer = writer;
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+        if ( reportIntervalMillis > 0 ) {
+            reporter = Executors.newSingleThreadScheduledExecutor( r -> {
+                Thread t = new Thread( r, "indexing-stats" );
+                t.setDaemon( true );
+                return t;
+            } );
+            reporter.scheduleAtFixedRate( this::report, reportIntervalMillis, reportIntervalMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Read the next document and count its parsing time and size.
+     */
+    public TrecTextDocument next( TrecTextReader reader ) throws IOException {
+        long t = System.nanoTime();
+        TrecTextDocument doc = reader.next();
+        parseNanos.add( System.nanoTime() - t );
+        if ( doc != null ) {
+            numBytes.add( length( doc.getDocno() ) + length( doc.getTitle() ) + length( doc.getAuthor() ) + length( doc.getSource() ) + length( doc.getText() ) );
+        }
+        return doc;
+    }
+
+    private static int length( String str ) {
+        return str == null ? 0 : str.length();
+    }
+
+    /**
+     * Add a document and count its indexing time.
+     */
+    public void addDocument( IndexWriter writer, Iterable<? extends IndexableField> doc ) throws IOException {
+        long t = System.nanoTime();
+        writer.addDocument( doc );
+        addNanos.add( System.nanoTime() - t );
+        numDocs.increment();
+    }
+
+    @Override
+    public boolean isEnabled( String component ) {
+        return "DWPT".equals( component ) || "IW".equals( component );
+    }
+
+    @Override
+    public void message( String component, String message ) {
+        Matcher m;
+        if ( "DWPT".equals( component ) ) {
+            if ( ( m = FLUSHED.matcher( message ) ).find() ) {
+                numFlushes.incrementAndGet();
+                flushRamBytes.addAndGet( (long) ( parse( m.group( 1 ) ) * MB ) );
+                flushedBytes.addAndGet( (long) ( parse( m.group( 2 ) ) * MB ) );
+            } else if ( ( m = FLUSH_TIME.matcher( message ) ).find() ) {
+                flushMicros.addAndGet( (long) ( parse( m.group( 1 ) ) * 1000 ) );
+            }
+        } else if ( ( m = MERGE_TIME.matcher( message ) ).find() ) {
+            numMerges.incrementAndGet();
+            mergeMillis.addAndGet( Long.parseLong( m.group( 1 ) ) );
+            mergedDocs.addAndGet( Long.parseLong( m.group( 2 ) ) );
+        }
+    }
+
+    private static double parse( String number ) {
+        return Double.parseDouble( number.replace( ",", "" ) );
+    }
+
+    private synchronized void report() {
+        try {
+            long now = System.nanoTime();
+            long bytes = numBytes.sum();
+            long merge = mergeMillis.get();
+            double seconds = ( now - lastNanos ) / 1e9;
+            double bytesPerSec = ( bytes - lastBytes ) / seconds;
+            out.println( this );
+            if ( autoTune && writer.isOpen() ) {
+                tune( bytesPerSec, ( merge - lastMergeMillis ) / 1000.0 / seconds );
+            }
+            lastNanos = now;
+            lastBytes = bytes;
+            lastMergeMillis = merge;
+            lastBytesPerSec = bytesPerSec;
+        } catch ( RuntimeException e ) {
+            e.printStackTrace( out );
+        }
+    }
+
+    /**
+     * @param bytesPerSec The throughput in the last interval.
+     * @param mergeBusy   The average number of busy merge threads in the last interval (by finished merges).
+     */
+    private void tune( double bytesPerSec, double mergeBusy ) {
+        LiveIndexWriterConfig config = writer.getConfig();
+        double ramBuffer = config.getRAMBufferSizeMB();
+        if ( ramBuffer != IndexWriterConfig.DISABLE_AUTO_FLUSH ) {
+            Runtime rt = Runtime.getRuntime();
+            double freeMB = ( rt.maxMemory() - rt.totalMemory() + rt.freeMemory() ) / MB;
+            double newRamBuffer = ramBuffer;
+            if ( freeMB < 0.25 * rt.maxMemory() / MB ) {
+                newRamBuffer = Math.max( 16, ramBuffer / 2 );
+                growing = true; // try growing again once the heap recovers
+            } else if ( growing && bytesPerSec > 0 ) {
+                if ( grew && bytesPerSec < lastBytesPerSec * 1.05 ) {
+                    growing = false; // the previous growth did not pay off
+                } else {
+                    newRamBuffer = Math.max( ramBuffer, Math.min( ramBuffer * 1.5, Math.min( maxRAMBufferSizeMB, freeMB / 4 ) ) );
+                }
+            }
+            grew = newRamBuffer > ramBuffer;
+            if ( newRamBuffer != ramBuffer ) {
+                config.setRAMBufferSizeMB( newRamBuffer );
+                out.printf( Locale.ROOT, "auto-tune: RAM buffer %.1fMB -> %.1fMB (free heap %.0fMB)\n", ramBuffer, newRamBuffer, freeMB );
+            }
+        }
+
+        MergeScheduler scheduler = config.getMergeScheduler();
+        if ( scheduler instanceof ConcurrentMergeScheduler ) {
+            ConcurrentMergeScheduler cms = (ConcurrentMergeScheduler) scheduler;
+            int threads = cms.getMaxThreadCount();
+            if ( threads == ConcurrentMergeScheduler.AUTO_DETECT_MERGES_AND_THREADS ) {
+                return; // not decided until the first merge
+            }
+            int maxThreads = Math.max( 1, Runtime.getRuntime().availableProcessors() / 2 );
+            int newThreads = threads;
+            if ( mergeBusy > 0.8 * threads && threads < maxThreads ) {
+                newThreads = threads + 1;
+            } else if ( mergeBusy < 0.2 * threads && threads > 1 ) {
+                newThreads = threads - 1;
+            }
+            if ( newThreads != threads ) {
+                cms.setMaxMergesAndThreads( newThreads + 5, newThreads );
+                out.printf( Locale.ROOT, "auto-tune: merge threads %d -> %d (busy %.2f)\n", threads, newThreads, mergeBusy );
+            }
+        }
+    }
+
+    public long getNumDocs() {
+        return numDocs.sum();
+    }
+
+    public long getNumBytes() {
+        return numBytes.sum();
+    }
+
+    public long getNumFlushes() {
+        return numFlushes.get();
+    }
+
+    public long getNumMerges() {
+        return numMerges.get();
+    }
+
+    /**
+     * @return The total time of finished merges in milliseconds.
+     */
+    public long getMergeMillis() {
+        return mergeMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        double seconds = Math.max( 1e-9, ( System.nanoTime() - startNanos ) / 1e9 );
+        long docs = numDocs.sum();
+        long flushes = numFlushes.get();
+        double parse = parseNanos.sum() / 1e9;
+        double analysis = analysisNanos.sum() / 1e9;
+        double write = Math.max( 0, addNanos.sum() / 1e9 - analysis );
+        double total = Math.max( 1e-9, parse + analysis + write );
+        String str = String.format( Locale.ROOT,
+                "indexed %d docs in %.1fs (%.1f docs/sec, %.2f MB/sec); " +
+                        "flushes=%d (avg ram %.1fMB, flushed %.1fMB, %.0fms); merges=%d (%d docs, %.1fs); " +
+                        "time split: parse %.0f%%, analysis %.0f%%, write %.0f%%",
+                docs, seconds, docs / seconds, numBytes.sum() / MB / seconds,
+                flushes, flushes == 0 ? 0 : flushRamBytes.get() / MB / flushes, flushes == 0 ? 0 : flushedBytes.get() / MB / flushes,
+                flushes == 0 ? 0 : flushMicros.get() / 1000.0 / flushes, numMerges.get(), mergedDocs.get(), mergeMillis.get() / 1000.0,
+                100 * parse / total, 100 * analysis / total, 100 * write / total );
+        IndexWriter writer = this.writer;
+        if ( writer != null && writer.isOpen() ) {
+            str += String.format( Locale.ROOT, "; ramBuffer=%.0fMB", writer.getConfig().getRAMBufferSizeMB() );
+            if ( writer.getConfig().getMergeScheduler() instanceof ConcurrentMergeScheduler ) {
+                str += "; mergeThreads=" + ( (ConcurrentMergeScheduler) writer.getConfig().getMergeScheduler() ).getMaxThreadCount();
+            }
+        }
+        return str;
+    }
+
+    /**
+     * Stop the periodic reports and tuning (it does not print a final report; use toString()).
+     */
+    @Override
+    public synchronized void close() {
+        if ( reporter != null ) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * Measures the time spent in the analysis chain below it.
+     */
+    private final class TimingFilter extends TokenFilter {
+
+        private long nanos;
+
+        TimingFilter( TokenStream input ) {
+            super( input );
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            long t = System.nanoTime();
+            boolean hasToken = input.incrementToken();
+            nanos += System.nanoTime() - t;
+            return hasToken;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            long t = System.nanoTime();
+            super.reset();
+            nanos += System.nanoTime() - t;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            analysisNanos.add( nanos );
+            nanos = 0;
+        }
+
+    }
+
+}
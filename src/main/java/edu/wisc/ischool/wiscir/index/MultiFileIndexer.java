@@ -0,0 +1,195 @@
+package edu.wisc.ischool.wiscir.index;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Indexes a collection of many corpus files (e.g., thousands of .gz shards of a TREC collection) in parallel.
+ * <p>
+ * Each file is a task on a work-stealing ForkJoinPool: a worker thread decompresses, parses, and indexes
+ * ({@link IndexWriter#addDocument}, which also analyzes) the documents of a file by itself, so decompression is
+ * spread over all workers instead of being a serial step in front of analysis. The file list is split recursively,
+ * and idle workers steal the remaining halves from busy ones, which balances files of uneven sizes.
+ * <p>
+ * The workers feed one or more IndexWriters: the i-th file (in decreasing order of size) is added to writer
+ * (i mod the number of writers), whichever worker indexes it, so each writer gets a similar share of the data, e.g.,
+ * one writer per shard as in {@link ShardedIndexer}, or one shared writer (IndexWriter is thread-safe).
+ * Files can be in any format supported by {@link TrecTextReader#open(Path)}.
+ * For a single large file, use {@link ParallelIndexer}, which pipelines parsing and indexing within the file.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class MultiFileIndexer {
+
+    private final List<IndexWriter> writers;
+    private final int parallelism;
+    private IndexingStats stats;
+
+    private final AtomicLong numIndexed = new AtomicLong();
+    private final AtomicLong numFiles = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param parallelism The number of worker threads.
+     * @param writers     The index writers fed by the workers.
+     */
+    public MultiFileIndexer( int parallelism, IndexWriter... writers ) {
+        if ( parallelism < 1 ) {
+            throw new IllegalArgumentException( "illegal parallelism value: " + parallelism + ", must be at least 1" );
+        }
+        if ( writers.length == 0 ) {
+            throw new IllegalArgumentException( "at least one index writer is needed" );
+        }
+        this.parallelism = parallelism;
+        this.writers = Arrays.asList( writers );
+    }
+
+    /**
+     * An indexer using all available processors.
+     *
+     * @param writers The index writers fed by the workers.
+     */
+    public MultiFileIndexer( IndexWriter... writers ) {
+        this( Runtime.getRuntime().availableProcessors(), writers );
+    }
+
+    /**
+     * @param stats Where to count the parsing and indexing time of each document; or null (default).
+     */
+    public MultiFileIndexer setStats( IndexingStats stats ) {
+        this.stats = stats;
+        return this;
+    }
+
+    /**
+     * Index all documents of the corpus files. The writers are neither committed nor closed.
+     *
+     * @param corpusFiles A list of trectext corpus files.
+     * @return The number of documents indexed.
+     * @throws IOException if reading or indexing any file failed (the other files are then skipped).
+     */
+    public long index( List<Path> corpusFiles ) throws IOException {
+        numIndexed.set( 0 );
+        numFiles.set( 0 );
+        failure.set( null );
+        if ( corpusFiles.isEmpty() ) {
+            return 0;
+        }
+
+        List<Path> files = new ArrayList<>( corpusFiles );
+        List<Long> sizes = new ArrayList<>();
+        for ( Path file : files ) {
+            sizes.add( Files.size( file ) );
+        }
+        Integer[] order = new Integer[files.size()];
+        for ( int i = 0; i < order.length; i++ ) {
+            order[i] = i;
+        }
+        Arrays.sort( order, Comparator.comparing( sizes::get, Comparator.reverseOrder() ) );
+        Path[] sorted = new Path[order.length];
+        for ( int i = 0; i < order.length; i++ ) {
+            sorted[i] = files.get( order[i] );
+        }
+
+        ForkJoinPool pool = new ForkJoinPool( Math.min( parallelism, sorted.length ), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( p );
+            t.setName( "indexer-worker-" + t.getPoolIndex() );
+            return t;
+        }, null, false );
+        try {
+            pool.invoke( new IndexFiles( sorted, 0, sorted.length ) );
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Throwable t = failure.get();
+        if ( t instanceof IOException ) {
+            throw (IOException) t;
+        } else if ( t != null ) {
+            throw new IOException( t );
+        }
+        return numIndexed.get();
+    }
+
+    /**
+     * @return The number of documents indexed so far.
+     */
+    public long getNumIndexed() {
+        return numIndexed.get();
+    }
+
+    /**
+     * @return The number of files indexed so far.
+     */
+    public long getNumFiles() {
+        return numFiles.get();
+    }
+
+    private void indexFile( Path file, IndexWriter writer ) throws IOException {
+        try ( TrecTextReader reader = TrecTextReader.open( file ) ) {
+            TrecTextDocument doc;
+            while ( failure.get() == null && ( doc = stats == null ? reader.next() : stats.next( reader ) ) != null ) {
+                if ( stats == null ) {
+                    writer.addDocument( LuceneBuildIndex.createDocument( doc ) );
+                } else {
+                    stats.addDocument( writer, LuceneBuildIndex.createDocument( doc ) );
+                }
+                numIndexed.incrementAndGet();
+            }
+        }
+        numFiles.incrementAndGet();
+    }
+
+    /**
+     * Indexes files [lo, hi) by splitting the range in halves until one file is left.
+     */
+    private class IndexFiles extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path[] files;
+        private final int lo;
+        private final int hi;
+
+        IndexFiles( Path[] files, int lo, int hi ) {
+            this.files = files;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if ( failure.get() != null ) {
+                return;
+            }
+            if ( hi - lo == 1 ) {
+                try {
+                    indexFile( files[lo], writers.get( lo % writers.size() ) );
+                } catch ( Throwable t ) {
+                    failure.compareAndSet( null, new IOException( "failed to index " + files[lo], t ) );
+                }
+                return;
+            }
+            int mid = ( lo + hi ) >>> 1;
+            invokeAll( new IndexFiles( files, lo, mid ), new IndexFiles( files, mid, hi ) );
+        }
+
+    }
+
+}
@@ -0,0 +1,201 @@
+package edu.wisc.ischool.wiscir.index;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A pipelined indexer: one parser thread reads documents from a {@link TrecTextReader} into a bounded queue,
+ * and a number of worker threads take documents from the queue, build Lucene Document objects, and call
+ * {@link IndexWriter#addDocument} (IndexWriter is thread-safe, and each thread analyzes its own documents).
+ * <p>
+ * The bounded queue applies backpressure: the parser blocks when the workers fall behind, so the number of
+ * parsed documents held in memory never exceeds the queue capacity.
+ * <p>
+ * The resulting index has the same documents, postings, and statistics as one built by
+ * {@link LuceneBuildIndex} on a single thread. However, documents may be assigned internal docids in a
+ * different order, so always use docnos (external IDs) to refer to documents.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class ParallelIndexer {
+
+    // signals the end of the corpus to a worker
+    private static final TrecTextDocument END = new TrecTextDocument( null, null, null, null, null );
+
+    private final IndexWriter writer;
+    private final int numWorkers;
+    private final int queueCapacity;
+    private long reportIntervalMillis = 10000;
+    private IndexingStats stats;
+
+    private final AtomicLong numIndexed = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param writer        The index writer shared by all workers.
+     * @param numWorkers    The number of worker threads calling addDocument.
+     * @param queueCapacity The maximum number of parsed documents waiting to be indexed.
+     */
+    public ParallelIndexer( IndexWriter writer, int numWorkers, int queueCapacity ) {
+        if ( numWorkers < 1 ) {
+            throw new IllegalArgumentException( "illegal numWorkers value: " + numWorkers + ", must be at least 1" );
+        }
+        if ( queueCapacity < 1 ) {
+            throw new IllegalArgumentException( "illegal queueCapacity value: " + queueCapacity + ", must be at least 1" );
+        }
+        this.writer = writer;
+        this.numWorkers = numWorkers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * An indexer using all available processors and a queue of 64 documents per worker.
+     *
+     * @param writer The index writer shared by all workers.
+     */
+    public ParallelIndexer( IndexWriter writer ) {
+        this( writer, Runtime.getRuntime().availableProcessors(), 64 * Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * @param reportIntervalMillis How often to print the indexing progress (docs/sec); 0 to disable.
+     */
+    public ParallelIndexer setReportIntervalMillis( long reportIntervalMillis ) {
+        this.reportIntervalMillis = reportIntervalMillis;
+        return this;
+    }
+
+    /**
+     * @param stats Where to count the parsing and indexing time of each document; or null (default).
+     *              The stats should be started with the same writer.
+     */
+    public ParallelIndexer setStats( IndexingStats stats ) {
+        this.stats = stats;
+        return this;
+    }
+
+    /**
+     * Index all documents from the reader. The reader is consumed but not closed; the writer is neither committed nor closed.
+     *
+     * @param reader A reader of a trectext corpus.
+     * @return The number of documents indexed.
+     * @throws IOException if parsing or indexing failed.
+     */
+    public long index( TrecTextReader reader ) throws IOException, InterruptedException {
+        numIndexed.set( 0 );
+        failure.set( null );
+        BlockingQueue<TrecTextDocument> queue = new ArrayBlockingQueue<>( queueCapacity );
+
+        Thread parser = new Thread( () -> parse( reader, queue ), "indexer-parser" );
+        Thread[] workers = new Thread[numWorkers];
+        for ( int i = 0; i < numWorkers; i++ ) {
+            workers[i] = new Thread( () -> work( queue ), "indexer-worker-" + i );
+        }
+
+        long start = System.nanoTime();
+        parser.start();
+        for ( Thread worker : workers ) {
+            worker.start();
+        }
+
+        long lastReport = start;
+        long lastCount = 0;
+        for ( Thread worker : workers ) {
+            while ( worker.isAlive() ) {
+                worker.join( reportIntervalMillis > 0 ? reportIntervalMillis : 0 );
+                long now = System.nanoTime();
+                if ( reportIntervalMillis > 0 && now - lastReport >= reportIntervalMillis * 1000000L ) {
+                    long count = numIndexed.get();
+                    System.out.printf( "indexed %d documents (%.1f docs/sec)\n", count, ( count - lastCount ) * 1e9 / ( now - lastReport ) );
+                    lastReport = now;
+                    lastCount = count;
+                }
+            }
+        }
+        parser.join();
+
+        Throwable t = failure.get();
+        if ( t instanceof IOException ) {
+            throw (IOException) t;
+        } else if ( t != null ) {
+            throw new IOException( t );
+        }
+
+        long count = numIndexed.get();
+        if ( reportIntervalMillis > 0 ) {
+            double seconds = ( System.nanoTime() - start ) / 1e9;
+            System.out.printf( "indexed %d documents in %.1f seconds (%.1f docs/sec)\n", count, seconds, count / seconds );
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of documents indexed so far.
+     */
+    public long getNumIndexed() {
+        return numIndexed.get();
+    }
+
+    private void parse( TrecTextReader reader, BlockingQueue<TrecTextDocument> queue ) {
+        try {
+            TrecTextDocument doc;
+            while ( failure.get() == null && ( doc = stats == null ? reader.next() : stats.next( reader ) ) != null ) {
+                put( queue, doc );
+            }
+        } catch ( Throwable t ) {
+            failure.compareAndSet( null, t );
+        } finally {
+            try {
+                for ( int i = 0; i < numWorkers; i++ ) {
+                    put( queue, END );
+                }
+            } catch ( InterruptedException e ) {
+                failure.compareAndSet( null, e );
+            }
+        }
+    }
+
+    /**
+     * Blocks while the queue is full (backpressure), but gives up once any thread has failed,
+     * because the workers may no longer be consuming.
+     */
+    private void put( BlockingQueue<TrecTextDocument> queue, TrecTextDocument doc ) throws InterruptedException {
+        while ( !queue.offer( doc, 100, TimeUnit.MILLISECONDS ) ) {
+            if ( failure.get() != null ) {
+                return;
+            }
+        }
+    }
+
+    private void work( BlockingQueue<TrecTextDocument> queue ) {
+        try {
+            while ( failure.get() == null ) {
+                TrecTextDocument doc = queue.poll( 100, TimeUnit.MILLISECONDS );
+                if ( doc == END ) {
+                    break;
+                }
+                if ( doc != null ) {
+                    if ( stats == null ) {
+                        writer.addDocument( LuceneBuildIndex.createDocument( doc ) );
+                    } else {
+                        stats.addDocument( writer, LuceneBuildIndex.createDocument( doc ) );
+                    }
+                    numIndexed.incrementAndGet();
+                }
+            }
+        } catch ( Throwable t ) {
+            failure.compareAndSet( null, t );
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package edu.wisc.ischool.wiscir.index;
+
+import edu.wisc.ischool.wiscir.corpus.TrecTextDocument;
+import edu.wisc.ischool.wiscir.corpus.TrecTextReader;
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import edu.wisc.ischool.wiscir.examples.LuceneBuildIndex;
+import edu.wisc.ischool.wiscir.utils.TextAnalyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds an index in K independent shards. The corpus files are split across K IndexWriters, each with its own
+ * Directory and RAM buffer and running on its own thread, so that the shards do not contend on a shared writer.
+ * <p>
+ * The shards can be searched separately (e.g., for distributed search), or combined into one index by
+ * {@link #merge(List, Path)} using {@link IndexWriter#addIndexes(Directory...)}.
+ * All shards use the field types and analyzer of {@link LuceneBuildIndex} and {@link BM25SimilarityOriginal},
+ * so a merged index is searchable in the same way as one built by {@link LuceneBuildIndex}.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class ShardedIndexer {
+
+    private final Path pathShards;
+    private final int numShards;
+    private double ramBufferSizeMB = 256;
+
+    /**
+     * @param pathShards The folder for the shards; shard i is written to the subfolder "shard-i".
+     * @param numShards  The number of shards (and indexing threads).
+     */
+    public ShardedIndexer( Path pathShards, int numShards ) {
+        if ( numShards < 1 ) {
+            throw new IllegalArgumentException( "illegal numShards value: " + numShards + ", must be at least 1" );
+        }
+        this.pathShards = pathShards;
+        this.numShards = numShards;
+    }
+
+    /**
+     * @param ramBufferSizeMB The RAM buffer size of each shard's IndexWriter.
+     */
+    public ShardedIndexer setRAMBufferSizeMB( double ramBufferSizeMB ) {
+        this.ramBufferSizeMB = ramBufferSizeMB;
+        return this;
+    }
+
+    /**
+     * Index the corpus files into shards. Files are assigned to shards greedily by size (largest first)
+     * to balance the amount of text indexed by each shard.
+     *
+     * @param corpusFiles A list of trectext corpus files.
+     * @return The paths of the shards.
+     * @throws IOException
+     */
+    public List<Path> build( List<Path> corpusFiles ) throws IOException, InterruptedException {
+        int k = Math.min( numShards, Math.max( 1, corpusFiles.size() ) );
+        List<List<Path>> assignment = assign( corpusFiles, k );
+
+        List<Path> shards = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool( k );
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for ( int i = 0; i < k; i++ ) {
+                Path pathShard = pathShards.resolve( "shard-" + i );
+                List<Path> files = assignment.get( i );
+                shards.add( pathShard );
+                futures.add( executor.submit( () -> buildShard( pathShard, files ) ) );
+            }
+            for ( Future<Long> future : futures ) {
+                future.get();
+            }
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException( e.getCause() );
+        } finally {
+            executor.shutdownNow();
+        }
+        return shards;
+    }
+
+    /**
+     * Combine the shards into one index. The target index is overwritten.
+     *
+     * @param shards    The paths of the shards.
+     * @param pathIndex The path of the combined index.
+     * @throws IOException
+     */
+    public static void merge( List<Path> shards, Path pathIndex ) throws IOException {
+        Directory[] dirs = new Directory[shards.size()];
+        try ( Directory dir = FSDirectory.open( pathIndex ) ) {
+            for ( int i = 0; i < dirs.length; i++ ) {
+                dirs[i] = FSDirectory.open( shards.get( i ) );
+            }
+            TextAnalyzer analyzer = LuceneBuildIndex.createAnalyzer();
+            try ( IndexWriter ixwriter = new IndexWriter( dir, createConfig( analyzer ) ) ) {
+                analyzer.saveTo( ixwriter );
+                ixwriter.addIndexes( dirs );
+            }
+        } finally {
+            for ( Directory d : dirs ) {
+                if ( d != null ) {
+                    d.close();
+                }
+            }
+        }
+    }
+
+    private long buildShard( Path pathShard, List<Path> files ) throws IOException {
+        long count = 0;
+        TextAnalyzer analyzer = LuceneBuildIndex.createAnalyzer();
+        IndexWriterConfig config = createConfig( analyzer );
+        config.setRAMBufferSizeMB( ramBufferSizeMB );
+        try ( Directory dir = FSDirectory.open( pathShard ); IndexWriter ixwriter = new IndexWriter( dir, config ) ) {
+            analyzer.saveTo( ixwriter );
+            for ( Path file : files ) {
+                try ( TrecTextReader reader = TrecTextReader.open( file ) ) {
+                    TrecTextDocument doc;
+                    while ( ( doc = reader.next() ) != null ) {
+                        ixwriter.addDocument( LuceneBuildIndex.createDocument( doc ) );
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static IndexWriterConfig createConfig( TextAnalyzer analyzer ) {
+        IndexWriterConfig config = new IndexWriterConfig( analyzer );
+        config.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
+        config.setSimilarity( new BM25SimilarityOriginal() );
+        return config;
+    }
+
+    private static List<List<Path>> assign( List<Path> corpusFiles, int k ) throws IOException {
+        List<Path> files = new ArrayList<>( corpusFiles );
+        List<Long> sizes = new ArrayList<>();
+        for ( Path file : files ) {
+            sizes.add( Files.size( file ) );
+        }
+        Integer[] order = new Integer[files.size()];
+        for ( int i = 0; i < order.length; i++ ) {
+            order[i] = i;
+        }
+        Arrays.sort( order, Comparator.comparing( sizes::get, Comparator.reverseOrder() ) );
+
+        List<List<Path>> assignment = new ArrayList<>();
+        long[] load = new long[k];
+        for ( int i = 0; i < k; i++ ) {
+            assignment.add( new ArrayList<>() );
+        }
+        for ( int idx : order ) {
+            int min = 0;
+            for ( int i = 1; i < k; i++ ) {
+                if ( load[i] < load[min] ) {
+                    min = i;
+                }
+            }
+            assignment.get( min ).add( files.get( idx ) );
+            load[min] += sizes.get( idx );
+        }
+        return assignment;
+    }
+
+}
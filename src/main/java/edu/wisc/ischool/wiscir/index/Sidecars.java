@@ -0,0 +1,56 @@
+package edu.wisc.ischool.wiscir.index;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helpers shared by the docid-keyed sidecar files of an index ({@link CollectionLM}, {@link ForwardIndex},
+ * {@link DocLengthStore}). Each file records the commit generation and the maxDoc of the index it was written from
+ * in its header, so a file left behind by an earlier commit (e.g., the index was updated without updating the file,
+ * or the process crashed between the two) is detected when it is opened for a reader.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+final class Sidecars {
+
+    private Sidecars() {
+    }
+
+    /**
+     * @return The generation of the index commit of a DirectoryReader; or -1 for other readers (e.g., a MultiReader),
+     * for which only maxDoc can be checked.
+     * @throws IOException
+     */
+    static long generation( IndexReader index ) throws IOException {
+        return index instanceof DirectoryReader ? ( (DirectoryReader) index ).getIndexCommit().getGeneration() : -1;
+    }
+
+    /**
+     * @return The first bytes of a file (little-endian); or null if the file does not exist or is shorter than that.
+     * @throws IOException
+     */
+    static ByteBuffer readHeader( Path path, int numBytes ) throws IOException {
+        if ( !Files.isRegularFile( path ) ) {
+            return null;
+        }
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+            if ( channel.size() < numBytes ) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate( numBytes ).order( ByteOrder.LITTLE_ENDIAN );
+            while ( header.hasRemaining() && channel.read( header, header.position() ) >= 0 ) {
+            }
+            return header.flip();
+        }
+    }
+
+}
@@ -0,0 +1,296 @@
+package edu.wisc.ischool.wiscir.index;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports the full vocabulary of a field with DF, total TF, IDF, and p(w|c) (computed in the same way as
+ * LuceneIterateVocabulary) to a sorted TSV file or a compact binary file.
+ * <p>
+ * The term space is split into ranges at byte prefixes of the terms, which are found by seeking (TermsEnum.seekCeil)
+ * the largest segment's term dictionary one prefix at a time rather than by iterating it. Each range is exported by a
+ * separate thread (which merges the segments' TermsEnums for its range) into a temporary part file, and the parts
+ * are concatenated in term order. Output is written with buffered streams instead of formatted printing.
+ * <p>
+ * The binary format (big-endian, as written by DataOutputStream) is:
+ * <pre>
+ * header:  int magic ("VOC1"), long N (number of documents), long corpusLength
+ * records: vint termLength, byte[termLength] term (UTF-8), int df, long totalTF, float idf, double p(w|c)
+ * </pre>
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class VocabularyExporter {
+
+    /**
+     * "VOC1"
+     */
+    public static final int MAGIC = 0x564f4331;
+
+    /**
+     * The number of candidate prefixes sampled per range (more prefixes give more even ranges).
+     */
+    private static final int PREFIXES_PER_RANGE = 8;
+
+    /**
+     * The longest sampled prefix.
+     */
+    private static final int MAX_PREFIX_LENGTH = 4;
+
+    public enum Format {
+        TSV, BINARY
+    }
+
+    private final IndexReader index;
+    private final String field;
+    private final int numThreads;
+
+    /**
+     * @param index      An index reader.
+     * @param field      The field whose vocabulary is exported.
+     * @param numThreads The number of threads.
+     */
+    public VocabularyExporter( IndexReader index, String field, int numThreads ) {
+        if ( numThreads < 1 ) {
+            throw new IllegalArgumentException( "illegal numThreads value: " + numThreads + ", must be at least 1" );
+        }
+        this.index = index;
+        this.field = field;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Export the vocabulary.
+     *
+     * @param path   Path of the output file.
+     * @param format The output format.
+     * @return The number of exported terms.
+     * @throws IOException
+     */
+    public long export( Path path, Format format ) throws IOException, InterruptedException {
+        Terms voc = MultiTerms.getTerms( index, field );
+        if ( voc == null ) {
+            throw new IllegalArgumentException( "field " + field + " is not indexed" );
+        }
+        double N = index.numDocs();
+        double corpusLength = index.getSumTotalTermFreq( field );
+
+        // ranges[i] to ranges[i+1] (exclusive); null means the beginning or the end of the vocabulary
+        List<BytesRef> bounds = sampleBounds( numThreads * 4 );
+        List<Path> parts = new ArrayList<>();
+        List<Future<Long>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+        try {
+            for ( int i = 0; i + 1 < bounds.size(); i++ ) {
+                Path part = path.resolveSibling( path.getFileName() + ".part" + i );
+                parts.add( part );
+                BytesRef lo = bounds.get( i );
+                BytesRef hi = bounds.get( i + 1 );
+                futures.add( executor.submit( () -> exportRange( lo, hi, part, format, N, corpusLength ) ) );
+            }
+            long count = 0;
+            for ( Future<Long> future : futures ) {
+                count += future.get();
+            }
+
+            try ( FileChannel out = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+                ByteBuffer header;
+                if ( format == Format.BINARY ) {
+                    header = ByteBuffer.allocate( Integer.BYTES + 2 * Long.BYTES );
+                    header.putInt( MAGIC ).putLong( (long) N ).putLong( (long) corpusLength ).flip();
+                } else {
+                    header = StandardCharsets.UTF_8.encode( "TERM\tDF\tTOTAL_TF\tIDF\tp(w|c)\n" );
+                }
+                while ( header.hasRemaining() ) {
+                    out.write( header );
+                }
+                for ( Path part : parts ) {
+                    try ( FileChannel in = FileChannel.open( part, StandardOpenOption.READ ) ) {
+                        long size = in.size();
+                        for ( long pos = 0; pos < size; ) {
+                            pos += in.transferTo( pos, size - pos, out );
+                        }
+                    }
+                }
+            }
+            return count;
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException( e.getCause() );
+        } finally {
+            executor.shutdownNow();
+            for ( Path part : parts ) {
+                Files.deleteIfExists( part );
+            }
+        }
+    }
+
+    /**
+     * Split the vocabulary into about numRanges ranges at byte prefixes of the terms in the largest segment.
+     * The distinct prefixes are found level by level (one byte longer each time) until there are enough of them,
+     * and evenly spaced ones among them are used as the bounds. Each distinct prefix costs one seekCeil, so the cost
+     * depends on numRanges rather than on the size of the vocabulary.
+     */
+    private List<BytesRef> sampleBounds( int numRanges ) throws IOException {
+        List<BytesRef> bounds = new ArrayList<>();
+        bounds.add( null );
+        Terms largest = null;
+        for ( LeafReaderContext context : index.leaves() ) {
+            Terms terms = context.reader().terms( field );
+            if ( terms != null && ( largest == null || terms.size() > largest.size() ) ) {
+                largest = terms;
+            }
+        }
+        if ( largest != null && numRanges > 1 ) {
+            TermsEnum termsEnum = largest.iterator();
+            List<BytesRef> prefixes = Collections.singletonList( new BytesRef() );
+            for ( int length = 1; length <= MAX_PREFIX_LENGTH && prefixes.size() < numRanges * PREFIXES_PER_RANGE; length++ ) {
+                List<BytesRef> longer = new ArrayList<>();
+                for ( BytesRef prefix : prefixes ) {
+                    addChildPrefixes( termsEnum, prefix, longer );
+                }
+                if ( longer.isEmpty() ) {
+                    break;
+                }
+                prefixes = longer;
+            }
+            for ( int i = 1; i < numRanges; i++ ) {
+                BytesRef bound = prefixes.get( (int) ( (long) i * prefixes.size() / numRanges ) );
+                if ( bound.length > 0 && ( bounds.size() == 1 || bound.compareTo( bounds.get( bounds.size() - 1 ) ) > 0 ) ) {
+                    bounds.add( bound );
+                }
+            }
+        }
+        bounds.add( null );
+        return bounds;
+    }
+
+    /**
+     * Add the distinct prefixes one byte longer than prefix (in order) by seeking to the next possible byte each time.
+     */
+    private static void addChildPrefixes( TermsEnum termsEnum, BytesRef prefix, List<BytesRef> children ) throws IOException {
+        BytesRefBuilder target = new BytesRefBuilder();
+        target.copyBytes( prefix );
+        while ( termsEnum.seekCeil( target.get() ) != TermsEnum.SeekStatus.END ) {
+            BytesRef term = termsEnum.term();
+            if ( !StringHelper.startsWith( term, prefix ) ) {
+                break;
+            }
+            // the prefix itself is a term: continue from the first longer one
+            int next = term.length == prefix.length ? 0 : term.bytes[term.offset + prefix.length] & 0xFF;
+            if ( term.length > prefix.length ) {
+                BytesRefBuilder child = new BytesRefBuilder();
+                child.copyBytes( prefix );
+                child.append( (byte) next );
+                children.add( child.toBytesRef() );
+                if ( next == 0xFF ) {
+                    break;
+                }
+                next++;
+            }
+            target.copyBytes( prefix );
+            target.append( (byte) next );
+        }
+    }
+
+    private long exportRange( BytesRef lo, BytesRef hi, Path part, Format format, double N, double corpusLength ) throws IOException {
+        TermsEnum termsEnum = MultiTerms.getTerms( index, field ).iterator();
+        BytesRef term;
+        if ( lo == null ) {
+            term = termsEnum.next();
+        } else {
+            term = termsEnum.seekCeil( lo ) == TermsEnum.SeekStatus.END ? null : termsEnum.term();
+        }
+        long count = 0;
+        if ( format == Format.TSV ) {
+            try ( Writer out = new BufferedWriter( new OutputStreamWriter( Files.newOutputStream( part ), StandardCharsets.UTF_8 ), 1 << 16 ) ) {
+                StringBuilder sb = new StringBuilder();
+                for ( ; term != null && ( hi == null || term.compareTo( hi ) < 0 ); term = termsEnum.next() ) {
+                    int n = termsEnum.docFreq();
+                    long freq = termsEnum.totalTermFreq();
+                    sb.setLength( 0 );
+                    sb.append( term.utf8ToString() ).append( '\t' ).append( n ).append( '\t' ).append( freq ).append( '\t' )
+                            .append( idf( N, n ) ).append( '\t' ).append( freq / corpusLength ).append( '\n' );
+                    out.append( sb );
+                    count++;
+                }
+            }
+        } else {
+            try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( part ), 1 << 16 ) ) ) {
+                for ( ; term != null && ( hi == null || term.compareTo( hi ) < 0 ); term = termsEnum.next() ) {
+                    int n = termsEnum.docFreq();
+                    long freq = termsEnum.totalTermFreq();
+                    writeVInt( out, term.length );
+                    out.write( term.bytes, term.offset, term.length );
+                    out.writeInt( n );
+                    out.writeLong( freq );
+                    out.writeFloat( (float) idf( N, n ) );
+                    out.writeDouble( freq / corpusLength );
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double idf( double N, int n ) {
+        return Math.log( ( N + 1.0 ) / ( n + 1.0 ) ); // well, we normalize N and n by adding 1 to avoid n = 0
+    }
+
+    private static void writeVInt( DataOutputStream out, int i ) throws IOException {
+        while ( ( i & ~0x7F ) != 0 ) {
+            out.writeByte( ( i & 0x7F ) | 0x80 );
+            i >>>= 7;
+        }
+        out.writeByte( i );
+    }
+
+    /**
+     * Read a variable-length int written in the binary format.
+     *
+     * @param in An input stream positioned at a vint.
+     * @return The int value.
+     * @throws IOException
+     */
+    public static int readVInt( DataInputStream in ) throws IOException {
+        int value = 0;
+        for ( int shift = 0; ; shift += 7 ) {
+            int b = in.readUnsignedByte();
+            value |= ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 ) {
+                return value;
+            }
+        }
+    }
+
+}
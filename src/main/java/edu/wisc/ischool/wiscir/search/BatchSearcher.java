@@ -0,0 +1,256 @@
+package edu.wisc.ischool.wiscir.search;
+
+import edu.wisc.ischool.wiscir.utils.DocnoMapper;
+import edu.wisc.ischool.wiscir.utils.LuceneUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a batch of queries with a pool of worker threads sharing one IndexSearcher, and writes the results
+ * in the standard TREC run format:
+ * <pre>
+ * qid Q0 docno rank score runtag
+ * </pre>
+ * The IndexSearcher may itself be created with an Executor to search the segments of each query in parallel.
+ * Results of a query are written together, but queries are written in the order they finish.
+ * A topic whose search fails gets no results in the run (the error is printed to System.err and counted in
+ * {@link Stats#getNumFailed()}) instead of aborting the batch.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class BatchSearcher {
+
+    private final IndexSearcher searcher;
+    private final Analyzer analyzer;
+    private final String field;
+    private final int numThreads;
+    private String fieldDocno = "docno";
+    private int top = 1000;
+    private String runTag = "lucene";
+
+    /**
+     * @param searcher   A searcher (with the similarity already set).
+     * @param analyzer   The analyzer for processing queries (it should be the same as the one used for indexing).
+     * @param field      The default field to search.
+     * @param numThreads The number of queries running at the same time.
+     */
+    public BatchSearcher( IndexSearcher searcher, Analyzer analyzer, String field, int numThreads ) {
+        if ( numThreads < 1 ) {
+            throw new IllegalArgumentException( "illegal numThreads value: " + numThreads + ", must be at least 1" );
+        }
+        this.searcher = searcher;
+        this.analyzer = analyzer;
+        this.field = field;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * @param top The number of results to retrieve for each query (default: 1000).
+     */
+    public BatchSearcher setTop( int top ) {
+        this.top = top;
+        return this;
+    }
+
+    /**
+     * @param runTag The run tag written in the last column of the run file (default: "lucene").
+     */
+    public BatchSearcher setRunTag( String runTag ) {
+        this.runTag = runTag;
+        return this;
+    }
+
+    /**
+     * @param fieldDocno The name of the field you used for storing docnos (default: "docno").
+     */
+    public BatchSearcher setFieldDocno( String fieldDocno ) {
+        this.fieldDocno = fieldDocno;
+        return this;
+    }
+
+    /**
+     * Read a topics file. Each line includes a query ID and the query text separated by a tab or space, e.g.,
+     * <pre>
+     * 301	international organized crime
+     * </pre>
+     * Empty lines and lines starting with # are ignored.
+     *
+     * @param path Path of the topics file.
+     * @return A list of topics.
+     * @throws IOException
+     */
+    public static List<Topic> readTopics( Path path ) throws IOException {
+        List<Topic> topics = new ArrayList<>();
+        try ( BufferedReader reader = Files.newBufferedReader( path, StandardCharsets.UTF_8 ) ) {
+            String line;
+            while ( ( line = reader.readLine() ) != null ) {
+                line = line.trim();
+                if ( line.isEmpty() || line.startsWith( "#" ) ) {
+                    continue;
+                }
+                int split = 0;
+                while ( split < line.length() && !Character.isWhitespace( line.charAt( split ) ) ) {
+                    split++;
+                }
+                topics.add( new Topic( line.substring( 0, split ), line.substring( split ).trim() ) );
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Search all topics and write the results to the output.
+     * Query text is searched as plain text: a bag of the analyzer's tokens (see {@link LuceneUtils#textQuery}),
+     * so QueryParser syntax and operators such as AND/OR/NOT in topics are searched as words.
+     *
+     * @param topics A list of topics.
+     * @param out    The output of the run file (wrap it with a BufferedWriter).
+     * @return The latency statistics of the batch.
+     * @throws IOException
+     */
+    public Stats run( List<Topic> topics, Writer out ) throws IOException, InterruptedException {
+        DocnoMapper docnos = DocnoMapper.get( searcher.getIndexReader(), fieldDocno );
+        AtomicInteger failed = new AtomicInteger();
+        long[] latencies = new long[topics.size()];
+        Arrays.fill( latencies, -1 ); // topics with empty queries or failed searches stay -1
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int i = 0; i < topics.size(); i++ ) {
+                int idx = i;
+                futures.add( executor.submit( () -> {
+                    Topic topic = topics.get( idx );
+                    long t0 = System.nanoTime();
+                    if ( topic.getQuery().isEmpty() ) {
+                        return null;
+                    }
+                    StringBuilder sb;
+                    try {
+                        Query query = LuceneUtils.textQuery( analyzer, field, topic.getQuery() );
+                        TopDocs docs = searcher.search( query, top );
+                        sb = new StringBuilder( docs.scoreDocs.length * 48 );
+                        int rank = 1;
+                        for ( ScoreDoc scoreDoc : docs.scoreDocs ) {
+                            sb.append( topic.getId() ).append( " Q0 " ).append( docnos.getDocno( scoreDoc.doc ) )
+                                    .append( ' ' ).append( rank++ ).append( ' ' ).append( scoreDoc.score )
+                                    .append( ' ' ).append( runTag ).append( '\n' );
+                        }
+                    } catch ( IOException | RuntimeException e ) {
+                        failed.incrementAndGet();
+                        System.err.println( "failed to search topic " + topic.getId() + ": " + e );
+                        return null;
+                    }
+                    latencies[idx] = System.nanoTime() - t0;
+                    synchronized ( out ) {
+                        out.write( sb.toString() );
+                    }
+                    return null;
+                } ) );
+            }
+            for ( Future<?> future : futures ) {
+                future.get();
+            }
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException( e.getCause() );
+        } finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+        return new Stats( latencies, failed.get(), System.nanoTime() - start );
+    }
+
+    public static class Topic {
+
+        private final String id;
+        private final String query;
+
+        public Topic( String id, String query ) {
+            this.id = id;
+            this.query = query;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+    }
+
+    /**
+     * Per-query latency percentiles and overall throughput of a batch.
+     */
+    public static class Stats {
+
+        private final long[] latencies; // sorted, in nanoseconds (only the searched queries)
+        private final int numFailed;
+        private final long elapsed;
+
+        Stats( long[] latencies, int numFailed, long elapsed ) {
+            this.latencies = Arrays.stream( latencies ).filter( latency -> latency >= 0 ).sorted().toArray();
+            this.numFailed = numFailed;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return The number of topics whose searches failed (they have no results in the run).
+         */
+        public int getNumFailed() {
+            return numFailed;
+        }
+
+        /**
+         * @param p A percentile between 0 and 100.
+         * @return The latency at the percentile in milliseconds.
+         */
+        public double percentile( double p ) {
+            if ( latencies.length == 0 ) {
+                return 0;
+            }
+            int idx = (int) Math.ceil( p / 100 * latencies.length ) - 1;
+            return latencies[Math.max( 0, Math.min( latencies.length - 1, idx ) )] / 1e6;
+        }
+
+        /**
+         * @return The number of queries per second.
+         */
+        public double qps() {
+            return latencies.length * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format( Locale.ROOT, "%d queries (%d failed) in %.1f seconds (%.1f QPS); latency (ms): p50=%.2f p90=%.2f p99=%.2f max=%.2f",
+                    latencies.length, numFailed, elapsed / 1e9, qps(), percentile( 50 ), percentile( 90 ), percentile( 99 ), percentile( 100 ) );
+        }
+
+    }
+
+}
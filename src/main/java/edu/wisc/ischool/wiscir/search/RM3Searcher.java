@@ -0,0 +1,485 @@
+package edu.wisc.ischool.wiscir.search;
+
+import edu.wisc.ischool.wiscir.index.CollectionLM;
+import edu.wisc.ischool.wiscir.index.ForwardIndex;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Pseudo-relevance feedback using the relevance model (RM3).
+ * <p>
+ * A search runs in five stages:
+ * <ol>
+ *   <li>first pass: search the original query and take the top fbDocs results as feedback documents;</li>
+ *   <li>loading: read the feedback documents' vectors from a {@link ForwardIndex} (in parallel if an executor is given);</li>
+ *   <li>aggregation: P(w|R) = sum_d P(w|d) * P(d|Q), where P(w|d) = freq(w,d)/|d| and P(d|Q) is the normalized first-pass score,
+ *   accumulated in a primitive open-addressing map of term ordinal -&gt; weight;</li>
+ *   <li>selection: the top fbTerms terms by P(w|R) are selected with a bounded heap and renormalized;</li>
+ *   <li>second pass: search a weighted BooleanQuery of originalQueryWeight * P(w|Q) + (1 - originalQueryWeight) * P(w|R).</li>
+ * </ol>
+ * The cost of a query is bounded by fbDocs, fbTerms, and a time cap: once the time cap is reached,
+ * no more feedback documents are loaded (if none was loaded, the first-pass results are returned).
+ * The time spent in each stage is reported in {@link Result}.
+ * <p>
+ * The forward index and the collection language model must be built from the searcher's index.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class RM3Searcher {
+
+    private final IndexSearcher searcher;
+    private final Analyzer analyzer;
+    private final String field;
+    private final CollectionLM clm;
+    private final ForwardIndex forward;
+    private final ExecutorService executor;
+
+    private int fbDocs = 10;
+    private int fbTerms = 10;
+    private float originalQueryWeight = 0.5f;
+    private long timeCapMillis = Long.MAX_VALUE;
+
+    /**
+     * @param searcher A searcher (with the similarity already set).
+     * @param analyzer The analyzer for processing queries (it should be the same as the one used for indexing).
+     * @param field    The field to search.
+     * @param clm      The collection language model of the field (it provides the terms of the forward index's ordinals).
+     * @param forward  The forward index of the field.
+     * @param executor An executor for loading feedback documents in parallel; or null to load them in the calling thread.
+     */
+    public RM3Searcher( IndexSearcher searcher, Analyzer analyzer, String field, CollectionLM clm, ForwardIndex forward, ExecutorService executor ) {
+        if ( forward.maxDoc() != searcher.getIndexReader().maxDoc() ) {
+            throw new IllegalArgumentException( "the forward index has " + forward.maxDoc() + " documents but the index has "
+                    + searcher.getIndexReader().maxDoc() + "; rewrite the forward index" );
+        }
+        this.searcher = searcher;
+        this.analyzer = analyzer;
+        this.field = field;
+        this.clm = clm;
+        this.forward = forward;
+        this.executor = executor;
+    }
+
+    /**
+     * @param fbDocs The number of feedback documents (default: 10).
+     */
+    public RM3Searcher setFbDocs( int fbDocs ) {
+        if ( fbDocs < 1 ) {
+            throw new IllegalArgumentException( "illegal fbDocs value: " + fbDocs + ", must be at least 1" );
+        }
+        this.fbDocs = fbDocs;
+        return this;
+    }
+
+    /**
+     * @param fbTerms The number of expansion terms (default: 10).
+     */
+    public RM3Searcher setFbTerms( int fbTerms ) {
+        if ( fbTerms < 1 ) {
+            throw new IllegalArgumentException( "illegal fbTerms value: " + fbTerms + ", must be at least 1" );
+        }
+        this.fbTerms = fbTerms;
+        return this;
+    }
+
+    /**
+     * @param originalQueryWeight The weight of the original query in the expanded query, between 0 and 1 (default: 0.5).
+     */
+    public RM3Searcher setOriginalQueryWeight( float originalQueryWeight ) {
+        if ( !( originalQueryWeight >= 0 && originalQueryWeight <= 1 ) ) {
+            throw new IllegalArgumentException( "illegal originalQueryWeight value: " + originalQueryWeight + ", must be between 0 and 1" );
+        }
+        this.originalQueryWeight = originalQueryWeight;
+        return this;
+    }
+
+    /**
+     * @param timeCapMillis The time (from the start of a search) after which no more feedback documents are loaded (default: no limit).
+     */
+    public RM3Searcher setTimeCapMillis( long timeCapMillis ) {
+        if ( timeCapMillis < 0 ) {
+            throw new IllegalArgumentException( "illegal timeCapMillis value: " + timeCapMillis + ", must be non-negative" );
+        }
+        this.timeCapMillis = timeCapMillis;
+        return this;
+    }
+
+    /**
+     * Search a query with RM3 pseudo-relevance feedback.
+     *
+     * @param qstr A textual query.
+     * @param top  The number of results to retrieve.
+     * @return The results and the expanded query, with the time spent in each stage.
+     * @throws IOException
+     */
+    public Result search( String qstr, int top ) throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        long deadline = timeCapMillis >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : t0 + timeCapMillis * 1000000;
+        Result result = new Result();
+
+        // stage 1: first pass
+        Map<String, Double> queryModel = analyze( qstr );
+        Query original = toQuery( queryModel );
+        TopDocs first = searcher.search( original, Math.max( top, fbDocs ) );
+        int numFbDocs = Math.min( fbDocs, first.scoreDocs.length );
+        int[] docids = new int[numFbDocs];
+        double[] docWeights = new double[numFbDocs];
+        double sumScores = 0;
+        for ( int i = 0; i < numFbDocs; i++ ) {
+            docids[i] = first.scoreDocs[i].doc;
+            sumScores += first.scoreDocs[i].score;
+        }
+        for ( int i = 0; i < numFbDocs; i++ ) {
+            docWeights[i] = sumScores > 0 ? first.scoreDocs[i].score / sumScores : 1.0 / numFbDocs;
+        }
+        long t1 = System.nanoTime();
+        result.firstPass = t1 - t0;
+
+        // stages 2 and 3: loading feedback documents and aggregating P(w|R)
+        IntDoubleMap relevanceModel = load( docids, docWeights, deadline, result );
+        long t2 = System.nanoTime();
+        result.loading = t2 - t1;
+
+        if ( result.numFbDocs == 0 || relevanceModel.size == 0 ) {
+            result.query = original;
+            result.topDocs = first.scoreDocs.length > top ? new TopDocs( first.totalHits, Arrays.copyOf( first.scoreDocs, top ) ) : first;
+            return result;
+        }
+
+        // stage 4: selecting the top expansion terms
+        TermHeap heap = new TermHeap( fbTerms );
+        for ( int i = 0; i < relevanceModel.keys.length; i++ ) {
+            if ( relevanceModel.keys[i] >= 0 ) {
+                heap.offer( relevanceModel.keys[i], relevanceModel.values[i] );
+            }
+        }
+        double sum = 0;
+        for ( int i = 0; i < heap.size; i++ ) {
+            sum += heap.weights[i];
+        }
+        Map<String, Double> expanded = new LinkedHashMap<>();
+        for ( Map.Entry<String, Double> entry : queryModel.entrySet() ) {
+            expanded.put( entry.getKey(), originalQueryWeight * entry.getValue() );
+        }
+        for ( int i = 0; i < heap.size; i++ ) {
+            double weight = ( 1 - originalQueryWeight ) * heap.weights[i] / sum;
+            expanded.merge( clm.term( heap.ords[i] ).utf8ToString(), weight, Double::sum );
+        }
+        result.query = toQuery( expanded );
+        long t3 = System.nanoTime();
+        result.selection = t3 - t2;
+
+        // stage 5: second pass
+        result.topDocs = searcher.search( result.query, top );
+        result.secondPass = System.nanoTime() - t3;
+        return result;
+    }
+
+    /**
+     * @return The maximum likelihood query model P(w|Q) of the analyzed query terms.
+     */
+    private Map<String, Double> analyze( String qstr ) throws IOException {
+        Map<String, Double> model = new LinkedHashMap<>();
+        int length = 0;
+        try ( TokenStream ts = analyzer.tokenStream( field, qstr ) ) {
+            CharTermAttribute termAtt = ts.addAttribute( CharTermAttribute.class );
+            ts.reset();
+            while ( ts.incrementToken() ) {
+                model.merge( termAtt.toString(), 1.0, Double::sum );
+                length++;
+            }
+            ts.end();
+        }
+        for ( Map.Entry<String, Double> entry : model.entrySet() ) {
+            entry.setValue( entry.getValue() / length );
+        }
+        return model;
+    }
+
+    private Query toQuery( Map<String, Double> model ) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for ( Map.Entry<String, Double> entry : model.entrySet() ) {
+            Query tq = new TermQuery( new Term( field, entry.getKey() ) );
+            builder.add( new BoostQuery( tq, entry.getValue().floatValue() ), BooleanClause.Occur.SHOULD );
+        }
+        return builder.build();
+    }
+
+    private IntDoubleMap load( int[] docids, double[] docWeights, long deadline, Result result ) throws IOException, InterruptedException {
+        if ( executor == null || docids.length < 2 ) {
+            IntDoubleMap model = new IntDoubleMap();
+            result.numFbDocs = aggregate( docids, docWeights, 0, 1, deadline, model );
+            return model;
+        }
+        int numTasks = Math.min( docids.length, Runtime.getRuntime().availableProcessors() );
+        List<Future<IntDoubleMap>> futures = new ArrayList<>();
+        int[] counts = new int[numTasks];
+        for ( int i = 0; i < numTasks; i++ ) {
+            int task = i;
+            futures.add( executor.submit( () -> {
+                IntDoubleMap model = new IntDoubleMap();
+                counts[task] = aggregate( docids, docWeights, task, numTasks, deadline, model );
+                return model;
+            } ) );
+        }
+        boolean completed = false;
+        try {
+            IntDoubleMap model = futures.get( 0 ).get();
+            for ( int i = 1; i < numTasks; i++ ) {
+                IntDoubleMap other = futures.get( i ).get();
+                for ( int j = 0; j < other.keys.length; j++ ) {
+                    if ( other.keys[j] >= 0 ) {
+                        model.add( other.keys[j], other.values[j] );
+                    }
+                }
+            }
+            for ( int count : counts ) {
+                result.numFbDocs += count;
+            }
+            completed = true;
+            return model;
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            if ( e.getCause() instanceof Error ) {
+                throw (Error) e.getCause();
+            }
+            throw new IOException( e.getCause() );
+        } finally {
+            if ( !completed ) {
+                // a task failed (or this thread was interrupted): do not leave the other tasks running on the executor
+                for ( Future<IntDoubleMap> future : futures ) {
+                    future.cancel( true );
+                }
+            }
+        }
+    }
+
+    /**
+     * Aggregate P(w|d) * P(d|Q) of the feedback documents start, start + step, start + 2 * step, ...
+     *
+     * @return The number of aggregated documents.
+     */
+    private int aggregate( int[] docids, double[] docWeights, int start, int step, long deadline, IntDoubleMap model ) {
+        ForwardIndex.DocVector vector = forward.newDocVector();
+        int count = 0;
+        for ( int i = start; i < docids.length; i += step ) {
+            if ( System.nanoTime() - deadline > 0 ) {
+                break;
+            }
+            // the first pass over the vector computes the document length
+            long length = 0;
+            vector.reset( docids[i] );
+            while ( vector.next() ) {
+                length += vector.freq();
+            }
+            if ( length > 0 ) {
+                vector.reset( docids[i] );
+                while ( vector.next() ) {
+                    model.add( vector.ord(), docWeights[i] * vector.freq() / length );
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The results of a query with the time spent in each stage.
+     */
+    public static class Result {
+
+        private TopDocs topDocs;
+        private Query query;
+        private int numFbDocs;
+        private long firstPass;
+        private long loading;
+        private long selection;
+        private long secondPass;
+
+        /**
+         * @return The results of the expanded query (or the first-pass results if no feedback document was loaded).
+         */
+        public TopDocs getTopDocs() {
+            return topDocs;
+        }
+
+        /**
+         * @return The expanded query (or the original query if no feedback document was loaded).
+         */
+        public Query getQuery() {
+            return query;
+        }
+
+        /**
+         * @return The number of loaded feedback documents (fewer than fbDocs if the time cap was reached).
+         */
+        public int getNumFbDocs() {
+            return numFbDocs;
+        }
+
+        /**
+         * @return Milliseconds spent in the first-pass search.
+         */
+        public double getFirstPassMillis() {
+            return firstPass / 1e6;
+        }
+
+        /**
+         * @return Milliseconds spent in loading feedback documents and aggregating the relevance model.
+         */
+        public double getLoadingMillis() {
+            return loading / 1e6;
+        }
+
+        /**
+         * @return Milliseconds spent in selecting the expansion terms.
+         */
+        public double getSelectionMillis() {
+            return selection / 1e6;
+        }
+
+        /**
+         * @return Milliseconds spent in the second-pass search.
+         */
+        public double getSecondPassMillis() {
+            return secondPass / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format( Locale.ROOT, "fbDocs=%d; time (ms): first pass=%.2f loading=%.2f selection=%.2f second pass=%.2f",
+                    numFbDocs, getFirstPassMillis(), getLoadingMillis(), getSelectionMillis(), getSecondPassMillis() );
+        }
+
+    }
+
+    /**
+     * An open-addressing hash map of non-negative int keys to double values (no boxing).
+     */
+    private static final class IntDoubleMap {
+
+        private int[] keys = newKeys( 256 ); // -1 for empty slots
+        private double[] values = new double[256];
+        private int size;
+
+        private static int[] newKeys( int capacity ) {
+            int[] keys = new int[capacity];
+            Arrays.fill( keys, -1 );
+            return keys;
+        }
+
+        private static int slot( int key, int mask ) {
+            int h = key * 0x9E3779B9;
+            return ( h ^ ( h >>> 16 ) ) & mask;
+        }
+
+        void add( int key, double delta ) {
+            int mask = keys.length - 1;
+            int slot = slot( key, mask );
+            while ( keys[slot] >= 0 ) {
+                if ( keys[slot] == key ) {
+                    values[slot] += delta;
+                    return;
+                }
+                slot = ( slot + 1 ) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = delta;
+            if ( ++size * 2 > keys.length ) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = newKeys( oldKeys.length * 2 );
+            values = new double[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for ( int i = 0; i < oldKeys.length; i++ ) {
+                if ( oldKeys[i] >= 0 ) {
+                    int slot = slot( oldKeys[i], mask );
+                    while ( keys[slot] >= 0 ) {
+                        slot = ( slot + 1 ) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A bounded min-heap of (term ordinal, weight) keeping the terms with the largest weights.
+     */
+    private static final class TermHeap {
+
+        private final int[] ords;
+        private final double[] weights;
+        private int size;
+
+        TermHeap( int capacity ) {
+            ords = new int[capacity];
+            weights = new double[capacity];
+        }
+
+        void offer( int ord, double weight ) {
+            if ( size < ords.length ) {
+                int i = size++;
+                while ( i > 0 && weights[( i - 1 ) >>> 1] > weight ) {
+                    int parent = ( i - 1 ) >>> 1;
+                    ords[i] = ords[parent];
+                    weights[i] = weights[parent];
+                    i = parent;
+                }
+                ords[i] = ord;
+                weights[i] = weight;
+            } else if ( size > 0 && weight > weights[0] ) {
+                int i = 0;
+                while ( true ) {
+                    int child = 2 * i + 1;
+                    if ( child >= size ) {
+                        break;
+                    }
+                    if ( child + 1 < size && weights[child + 1] < weights[child] ) {
+                        child++;
+                    }
+                    if ( weights[child] >= weight ) {
+                        break;
+                    }
+                    ords[i] = ords[child];
+                    weights[i] = weights[child];
+                    i = child;
+                }
+                ords[i] = ord;
+                weights[i] = weight;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,255 @@
+package edu.wisc.ischool.wiscir.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of top-k search results for head-heavy query traffic.
+ * <p>
+ * An entry is keyed by the index reader, the normalized query string, the similarity (whose toString() includes
+ * its parameters, e.g., "BM25(k1=1.2,b=0.75)"), and k, and it stores the results compactly as int docids and
+ * float scores. The cache holds at most maxSize entries (least recently used ones are evicted).
+ * Concurrent misses of the same key are de-duplicated: only one thread searches and the others wait for its results.
+ * <p>
+ * Entries of a reader are removed when the reader is closed, so a refreshed reader (a new generation, e.g., from
+ * {@link WarmSearcherManager}) never sees stale results; the docids of an entry are only valid for its reader.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class ResultCache {
+
+    private final int maxSize;
+    private final Map<Key, CachedResults> entries;
+    private final Map<Key, CompletableFuture<CachedResults>> pending = new ConcurrentHashMap<>();
+    private final Set<IndexReader.CacheKey> readers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize The maximum number of cached results.
+     */
+    public ResultCache( int maxSize ) {
+        if ( maxSize < 1 ) {
+            throw new IllegalArgumentException( "illegal maxSize value: " + maxSize + ", must be at least 1" );
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, CachedResults>( 16, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Key, CachedResults> eldest ) {
+                if ( size() > ResultCache.this.maxSize ) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Search the top k results of a query, using the cached results if available.
+     *
+     * @param searcher A searcher (with the similarity already set).
+     * @param query    A query.
+     * @param k        The number of results.
+     * @return The top k results (a new TopDocs object for every call).
+     * @throws IOException
+     */
+    public TopDocs search( IndexSearcher searcher, Query query, int k ) throws IOException {
+        IndexReader.CacheHelper helper = searcher.getIndexReader().getReaderCacheHelper();
+        if ( helper == null ) {
+            misses.incrementAndGet();
+            return searcher.search( query, k ); // this reader does not support caching
+        }
+        IndexReader.CacheKey reader = helper.getKey();
+        if ( readers.add( reader ) ) {
+            helper.addClosedListener( this::invalidate );
+        }
+        Key key = new Key( reader, normalize( query ), searcher.getSimilarity().toString(), k );
+
+        CachedResults entry;
+        synchronized ( entries ) {
+            entry = entries.get( key );
+        }
+        if ( entry != null ) {
+            hits.incrementAndGet();
+            return entry.toTopDocs();
+        }
+
+        CompletableFuture<CachedResults> future = new CompletableFuture<>();
+        CompletableFuture<CachedResults> existing = pending.putIfAbsent( key, future );
+        if ( existing != null ) {
+            // another thread is searching the same query
+            hits.incrementAndGet();
+            try {
+                return existing.get().toTopDocs();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new IOException( e );
+            } catch ( ExecutionException e ) {
+                if ( e.getCause() instanceof IOException ) {
+                    throw (IOException) e.getCause();
+                }
+                if ( e.getCause() instanceof Error ) {
+                    throw (Error) e.getCause();
+                }
+                throw new IOException( e.getCause() );
+            }
+        }
+
+        misses.incrementAndGet();
+        try {
+            TopDocs docs = searcher.search( query, k );
+            entry = new CachedResults( docs );
+            synchronized ( entries ) {
+                // do not cache results of a reader closed in the meantime (checked under the lock of invalidate)
+                if ( readers.contains( reader ) ) {
+                    entries.put( key, entry );
+                }
+            }
+            future.complete( entry );
+            return docs;
+        } catch ( Throwable t ) {
+            // complete the future even on an Error, otherwise the waiting threads would block forever
+            future.completeExceptionally( t );
+            throw t;
+        } finally {
+            pending.remove( key );
+        }
+    }
+
+    /**
+     * The normalized query string: Query.toString() of the parsed (analyzed) query with whitespace collapsed.
+     */
+    private static String normalize( Query query ) {
+        return query.toString().trim().replaceAll( "\\s+", " " );
+    }
+
+    /**
+     * Remove all entries of a reader.
+     */
+    private void invalidate( IndexReader.CacheKey reader ) {
+        synchronized ( entries ) {
+            readers.remove( reader );
+            entries.keySet().removeIf( key -> key.reader == reader );
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        synchronized ( entries ) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return The number of cached results.
+     */
+    public int size() {
+        synchronized ( entries ) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The number of searches answered from the cache (including those that waited for a concurrent miss).
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT, "ResultCache(size=%d,hits=%d,misses=%d,evictions=%d)", size(), getHitCount(), getMissCount(), getEvictionCount() );
+    }
+
+    private static final class Key {
+
+        private final IndexReader.CacheKey reader;
+        private final String query;
+        private final String similarity;
+        private final int k;
+        private final int hash;
+
+        Key( IndexReader.CacheKey reader, String query, String similarity, int k ) {
+            this.reader = reader;
+            this.query = query;
+            this.similarity = similarity;
+            this.k = k;
+            this.hash = ( ( System.identityHashCode( reader ) * 31 + query.hashCode() ) * 31 + similarity.hashCode() ) * 31 + k;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( !( obj instanceof Key ) ) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return reader == other.reader && k == other.k && query.equals( other.query ) && similarity.equals( other.similarity );
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    /**
+     * Compact top-k results.
+     */
+    private static final class CachedResults {
+
+        private final int[] docs;
+        private final float[] scores;
+        private final long totalHits;
+        private final TotalHits.Relation relation;
+
+        CachedResults( TopDocs topDocs ) {
+            docs = new int[topDocs.scoreDocs.length];
+            scores = new float[topDocs.scoreDocs.length];
+            for ( int i = 0; i < docs.length; i++ ) {
+                docs[i] = topDocs.scoreDocs[i].doc;
+                scores[i] = topDocs.scoreDocs[i].score;
+            }
+            totalHits = topDocs.totalHits.value;
+            relation = topDocs.totalHits.relation;
+        }
+
+        TopDocs toTopDocs() {
+            ScoreDoc[] scoreDocs = new ScoreDoc[docs.length];
+            for ( int i = 0; i < docs.length; i++ ) {
+                scoreDocs[i] = new ScoreDoc( docs[i], scores[i] );
+            }
+            return new TopDocs( new TotalHits( totalHits, relation ), scoreDocs );
+        }
+
+    }
+
+}
@@ -0,0 +1,440 @@
+package edu.wisc.ischool.wiscir.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a result page (stored fields and a query-biased snippet for each hit) from search results.
+ * <p>
+ * The hits are visited in docid order, segment by segment, and all needed stored fields of a hit are loaded
+ * by one call with a reused StoredFieldVisitor (instead of one stored-fields lookup per field, as
+ * LuceneUtils.getDocno does). Consecutive docids often share a compressed block of stored fields, so they are
+ * decompressed together.
+ * <p>
+ * A snippet is the window of the text field (at most snippetLength characters) with the most distinct query terms
+ * (then the most matches), with the matches highlighted. The text of a snippet is HTML-escaped (unless
+ * {@link #setEscapeHtml(boolean)} turns it off, e.g., for printing to a console) and its whitespace is
+ * collapsed while it is appended (the highlighting tags are inserted as they are). The matches are located by the offsets stored in the
+ * term vector (LuceneBuildIndex.fieldTypeText stores them); if the term vector has no offsets, the first
+ * maxAnalyzedChars characters of the text are analyzed instead. Rendered snippets are kept in an LRU cache
+ * keyed by the snippet settings, the query terms, and the docid, so repeated queries (e.g., the next result page)
+ * do not rebuild them, and changing a setting does not return snippets rendered with the old one.
+ * <p>
+ * A renderer is only valid for the reader it was created with (the cache is keyed by docids).
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class ResultRenderer {
+
+    private final IndexReader index;
+    private final Analyzer analyzer;
+    private final String fieldText;
+    private final Set<String> fields = new LinkedHashSet<>();
+    private int snippetLength = 200;
+    private int maxAnalyzedChars = 10000;
+    private String preTag = "<b>";
+    private String postTag = "</b>";
+    private boolean escapeHtml = true;
+    private Map<String, String> cache;
+    private boolean snippets = true;
+    private SearchMetrics metrics;
+
+    /**
+     * @param index     An index reader.
+     * @param analyzer  The analyzer for processing queries (it should be the same as the one used for indexing).
+     * @param fieldText The stored text field for snippets.
+     * @param fields    The stored fields to load for each hit (e.g., "docno" and "title").
+     */
+    public ResultRenderer( IndexReader index, Analyzer analyzer, String fieldText, String... fields ) {
+        this.index = index;
+        this.analyzer = analyzer;
+        this.fieldText = fieldText;
+        this.fields.addAll( Arrays.asList( fields ) );
+        setCacheSize( 10000 );
+    }
+
+    /**
+     * @param snippets Whether to generate snippets (default: true); if false, only the stored fields are loaded.
+     */
+    public ResultRenderer setSnippets( boolean snippets ) {
+        this.snippets = snippets;
+        return this;
+    }
+
+    /**
+     * @param metrics Where to count the stored-field bytes read; or null (default).
+     */
+    public ResultRenderer setMetrics( SearchMetrics metrics ) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @param snippetLength The maximum number of characters in a snippet (default: 200).
+     */
+    public ResultRenderer setSnippetLength( int snippetLength ) {
+        this.snippetLength = snippetLength;
+        return this;
+    }
+
+    /**
+     * @param maxAnalyzedChars The number of characters to analyze for documents without term vector offsets (default: 10000).
+     */
+    public ResultRenderer setMaxAnalyzedChars( int maxAnalyzedChars ) {
+        this.maxAnalyzedChars = maxAnalyzedChars;
+        return this;
+    }
+
+    /**
+     * @param preTag  The text inserted (not escaped) before a highlighted match (default: "&lt;b&gt;").
+     * @param postTag The text inserted (not escaped) after a highlighted match (default: "&lt;/b&gt;").
+     */
+    public ResultRenderer setTags( String preTag, String postTag ) {
+        this.preTag = preTag;
+        this.postTag = postTag;
+        return this;
+    }
+
+    /**
+     * @param escapeHtml Whether to HTML-escape the text of snippets (default: true); turn it off for plain-text output.
+     */
+    public ResultRenderer setEscapeHtml( boolean escapeHtml ) {
+        this.escapeHtml = escapeHtml;
+        return this;
+    }
+
+    /**
+     * @param cacheSize The maximum number of cached snippets; 0 to disable the cache (default: 10000).
+     */
+    public ResultRenderer setCacheSize( int cacheSize ) {
+        this.cache = cacheSize > 0 ? Collections.synchronizedMap( new LinkedHashMap<String, String>( 16, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, String> eldest ) {
+                return size() > cacheSize;
+            }
+        } ) : null;
+        return this;
+    }
+
+    /**
+     * Render the results of a query.
+     *
+     * @param qstr The textual query (used for the snippets).
+     * @param docs The search results.
+     * @return The rendered results in the same order as the search results.
+     * @throws IOException
+     */
+    public List<Result> render( String qstr, TopDocs docs ) throws IOException {
+        List<String> terms = analyze( qstr );
+        // snippets rendered with other settings must not be returned from the cache
+        String cacheKey = snippetLength + "\u0000" + maxAnalyzedChars + "\u0000" + escapeHtml + "\u0000" + preTag + "\u0000" + postTag
+                + "\u0000" + String.join( " ", terms ) + "\u0000";
+
+        ScoreDoc[] hits = docs.scoreDocs;
+        Result[] results = new Result[hits.length];
+        Integer[] order = new Integer[hits.length];
+        for ( int i = 0; i < hits.length; i++ ) {
+            order[i] = i;
+        }
+        Arrays.sort( order, ( a, b ) -> Integer.compare( hits[a].doc, hits[b].doc ) );
+
+        List<LeafReaderContext> leaves = index.leaves();
+        FieldsVisitor visitor = new FieldsVisitor();
+        for ( int i : order ) {
+            int docid = hits[i].doc;
+            LeafReaderContext context = leaves.get( ReaderUtil.subIndex( docid, leaves ) );
+            String snippet = cache == null || !snippets ? null : cache.get( cacheKey + docid );
+            visitor.reset( snippets && snippet == null );
+            context.reader().document( docid - context.docBase, visitor );
+            if ( snippets && snippet == null ) {
+                String text = visitor.text == null ? "" : visitor.text;
+                snippet = snippet( text, matches( docid, text, terms ), terms.size() );
+                if ( cache != null ) {
+                    cache.put( cacheKey + docid, snippet );
+                }
+            }
+            results[i] = new Result( i + 1, docid, hits[i].score, visitor.values, snippet );
+        }
+        return Arrays.asList( results );
+    }
+
+    private List<String> analyze( String qstr ) throws IOException {
+        Set<String> terms = new LinkedHashSet<>();
+        try ( TokenStream ts = analyzer.tokenStream( fieldText, qstr ) ) {
+            CharTermAttribute termAtt = ts.addAttribute( CharTermAttribute.class );
+            ts.reset();
+            while ( ts.incrementToken() ) {
+                terms.add( termAtt.toString() );
+            }
+            ts.end();
+        }
+        return new ArrayList<>( terms );
+    }
+
+    /**
+     * @return The matches of the query terms in the text as {start offset, end offset, term index} sorted by start offset.
+     */
+    private List<int[]> matches( int docid, String text, List<String> terms ) throws IOException {
+        List<int[]> matches = new ArrayList<>();
+        if ( terms.isEmpty() ) {
+            return matches;
+        }
+        Terms vector = index.getTermVector( docid, fieldText );
+        if ( vector != null && vector.hasOffsets() ) {
+            TermsEnum termsEnum = vector.iterator();
+            PostingsEnum postings = null;
+            for ( int t = 0; t < terms.size(); t++ ) {
+                if ( termsEnum.seekExact( new BytesRef( terms.get( t ) ) ) ) {
+                    postings = termsEnum.postings( postings, PostingsEnum.OFFSETS );
+                    postings.nextDoc();
+                    for ( int k = 0; k < postings.freq(); k++ ) {
+                        postings.nextPosition();
+                        matches.add( new int[]{ postings.startOffset(), postings.endOffset(), t } );
+                    }
+                }
+            }
+        } else {
+            Map<String, Integer> termIndex = new HashMap<>();
+            for ( int t = 0; t < terms.size(); t++ ) {
+                termIndex.put( terms.get( t ), t );
+            }
+            String prefix = text.length() > maxAnalyzedChars ? text.substring( 0, maxAnalyzedChars ) : text;
+            try ( TokenStream ts = analyzer.tokenStream( fieldText, prefix ) ) {
+                CharTermAttribute termAtt = ts.addAttribute( CharTermAttribute.class );
+                OffsetAttribute offsetAtt = ts.addAttribute( OffsetAttribute.class );
+                ts.reset();
+                while ( ts.incrementToken() ) {
+                    Integer t = termIndex.get( termAtt.toString() );
+                    if ( t != null ) {
+                        matches.add( new int[]{ offsetAtt.startOffset(), offsetAtt.endOffset(), t } );
+                    }
+                }
+                ts.end();
+            }
+        }
+        matches.sort( ( a, b ) -> Integer.compare( a[0], b[0] ) );
+        return matches;
+    }
+
+    private String snippet( String text, List<int[]> matches, int numTerms ) {
+        int start = 0;
+        int end = Math.min( text.length(), snippetLength );
+        if ( !matches.isEmpty() ) {
+            // find the window of matches with the most distinct terms, then the most matches
+            int[] counts = new int[numTerms];
+            int distinct = 0;
+            int best = -1, bestFirst = 0, bestLast = 0;
+            for ( int i = 0, j = 0; j < matches.size(); j++ ) {
+                if ( counts[matches.get( j )[2]]++ == 0 ) {
+                    distinct++;
+                }
+                while ( matches.get( j )[1] - matches.get( i )[0] > snippetLength && i < j ) {
+                    if ( --counts[matches.get( i )[2]] == 0 ) {
+                        distinct--;
+                    }
+                    i++;
+                }
+                int score = distinct * matches.size() + ( j - i + 1 );
+                if ( score > best ) {
+                    best = score;
+                    bestFirst = i;
+                    bestLast = j;
+                }
+            }
+            int regionStart = matches.get( bestFirst )[0];
+            int regionEnd = matches.get( bestLast )[1];
+            start = Math.max( 0, Math.min( regionStart - ( snippetLength - ( regionEnd - regionStart ) ) / 2, text.length() - snippetLength ) );
+            end = Math.min( text.length(), Math.max( start + snippetLength, regionEnd ) );
+        }
+        // do not cut words at the boundaries
+        while ( start > 0 && Character.isLetterOrDigit( text.charAt( start - 1 ) ) && start < end ) {
+            start++;
+        }
+        while ( end < text.length() && end > start && Character.isLetterOrDigit( text.charAt( end ) ) ) {
+            end--;
+        }
+
+        StringBuilder sb = new StringBuilder( end - start + 32 );
+        if ( start > 0 ) {
+            sb.append( "... " );
+        }
+        int pos = start;
+        for ( int[] match : matches ) {
+            if ( match[0] >= pos && match[1] <= end ) {
+                appendText( sb, text, pos, match[0] );
+                sb.append( preTag );
+                appendText( sb, text, match[0], match[1] );
+                sb.append( postTag );
+                pos = match[1];
+            }
+        }
+        appendText( sb, text, pos, end );
+        if ( end < text.length() ) {
+            appendText( sb, " ", 0, 1 );
+            sb.append( "..." );
+        }
+        int length = sb.length();
+        while ( length > 0 && sb.charAt( length - 1 ) == ' ' ) {
+            length--;
+        }
+        sb.setLength( length );
+        return sb.toString();
+    }
+
+    /**
+     * Append text[from, to) HTML-escaped (if escapeHtml), with each run of whitespace collapsed into one space
+     * (and no leading space).
+     */
+    private void appendText( StringBuilder sb, String text, int from, int to ) {
+        for ( int i = from; i < to; i++ ) {
+            char c = text.charAt( i );
+            if ( Character.isWhitespace( c ) ) {
+                if ( sb.length() > 0 && sb.charAt( sb.length() - 1 ) != ' ' ) {
+                    sb.append( ' ' );
+                }
+            } else if ( !escapeHtml ) {
+                sb.append( c );
+            } else {
+                switch ( c ) {
+                    case '&':
+                        sb.append( "&amp;" );
+                        break;
+                    case '<':
+                        sb.append( "&lt;" );
+                        break;
+                    case '>':
+                        sb.append( "&gt;" );
+                        break;
+                    case '"':
+                        sb.append( "&quot;" );
+                        break;
+                    case '\'':
+                        sb.append( "&#39;" );
+                        break;
+                    default:
+                        sb.append( c );
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the requested stored fields (and the text field if a snippet is needed) and stops once all are loaded.
+     */
+    private class FieldsVisitor extends StoredFieldVisitor {
+
+        private Map<String, String> values;
+        private String text;
+        private boolean needText;
+        private int remaining;
+
+        void reset( boolean needText ) {
+            this.values = new HashMap<>();
+            this.text = null;
+            this.needText = needText;
+            this.remaining = fields.size() + ( needText && !fields.contains( fieldText ) ? 1 : 0 );
+        }
+
+        @Override
+        public Status needsField( FieldInfo fieldInfo ) {
+            if ( remaining == 0 ) {
+                return Status.STOP;
+            }
+            return fields.contains( fieldInfo.name ) || ( needText && fieldInfo.name.equals( fieldText ) ) ? Status.YES : Status.NO;
+        }
+
+        @Override
+        public void stringField( FieldInfo fieldInfo, byte[] value ) {
+            if ( metrics != null ) {
+                metrics.addStoredFieldBytes( value.length );
+            }
+            String str = new String( value, StandardCharsets.UTF_8 );
+            if ( fields.contains( fieldInfo.name ) && !values.containsKey( fieldInfo.name ) ) {
+                values.put( fieldInfo.name, str );
+                remaining--;
+            }
+            if ( needText && fieldInfo.name.equals( fieldText ) && text == null ) {
+                text = str;
+                if ( !fields.contains( fieldText ) ) {
+                    remaining--;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A rendered search result.
+     */
+    public static class Result {
+
+        private final int rank;
+        private final int docid;
+        private final float score;
+        private final Map<String, String> fields;
+        private final String snippet;
+
+        Result( int rank, int docid, float score, Map<String, String> fields, String snippet ) {
+            this.rank = rank;
+            this.docid = docid;
+            this.score = score;
+            this.fields = fields;
+            this.snippet = snippet;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        public int getDocid() {
+            return docid;
+        }
+
+        public float getScore() {
+            return score;
+        }
+
+        /**
+         * @param field A stored field requested when the renderer was created.
+         * @return The value of the field; or null if the document does not have it.
+         */
+        public String getField( String field ) {
+            return fields.get( field );
+        }
+
+        /**
+         * @return The snippet; or null if snippets are disabled.
+         */
+        public String getSnippet() {
+            return snippet;
+        }
+
+    }
+
+}
@@ -0,0 +1,418 @@
+package edu.wisc.ischool.wiscir.search;
+
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sequential dependence model (SDM) ranking over position postings.
+ * <p>
+ * The score of a document is a weighted sum of three types of Dirichlet-smoothed features:
+ * <pre>
+ * score(Q,D) = weightT * sum_{q in Q} f(q,D) + weightO * sum_{q1 q2 in Q} f(#od1(q1 q2),D) + weightU * sum_{q1 q2 in Q} f(#uwN(q1 q2),D)
+ * f(x,D) = log( ( tf(x,D) + mu * cf(x) / |C| ) / ( |D| + mu ) )
+ * </pre>
+ * where q1 q2 are adjacent query terms, #od1 counts the occurrences of q1 immediately followed by q2, and #uwN counts
+ * the occurrences of q1 and q2 (in any order) within a window of N terms. |D| is the exact document length stored
+ * in norms by {@link BM25SimilarityOriginal} (or the other *Original similarities).
+ * <p>
+ * To keep queries interactive on large indexes, SDM reranks the top candidates of a first-pass bag-of-words search
+ * (using the searcher's similarity, so it benefits from dynamic pruning). The candidates of each segment are visited
+ * in docid order, advancing one position iterator per query term, so the features of all terms and windows are
+ * computed in one pass over the aligned iterators. Positions are read into reused int arrays (no allocation per
+ * position), and window counting is skipped for documents missing either term. The window frequencies in the whole
+ * collection, cf(x), are counted exactly over the documents containing both terms, which walks the position postings
+ * of both terms; so they are cached per reader (keyed by field, term pair, and window size; at most
+ * {@link #WINDOW_CACHE_SIZE} pairs per reader, least recently used first out), and only the first query with a pair
+ * pays for it. The cache of a reader is dropped when the reader is closed.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class SDMSearcher {
+
+    private static final int TERM_STATS_CACHE_SIZE = 10000;
+
+    /**
+     * The maximum number of cached window frequencies per reader.
+     */
+    public static final int WINDOW_CACHE_SIZE = 10000;
+
+    private static final Map<IndexReader.CacheKey, Map<String, long[]>> WINDOW_CACHES = new ConcurrentHashMap<>();
+
+    private final IndexSearcher searcher;
+    private final Analyzer analyzer;
+    private final String field;
+
+    private float weightT = 0.85f;
+    private float weightO = 0.10f;
+    private float weightU = 0.05f;
+    private int window = 8;
+    private double mu = 2000;
+    private int numCandidates = 1000;
+
+    /**
+     * @param searcher A searcher (its similarity is used for the first pass).
+     * @param analyzer The analyzer for processing queries (it should be the same as the one used for indexing).
+     * @param field    The field to search (it must be indexed with positions).
+     */
+    public SDMSearcher( IndexSearcher searcher, Analyzer analyzer, String field ) {
+        this.searcher = searcher;
+        this.analyzer = analyzer;
+        this.field = field;
+    }
+
+    /**
+     * @param weightT The weight of the unigram features (default: 0.85).
+     * @param weightO The weight of the ordered window features (default: 0.10).
+     * @param weightU The weight of the unordered window features (default: 0.05).
+     */
+    public SDMSearcher setWeights( float weightT, float weightO, float weightU ) {
+        if ( !( weightT >= 0 ) ) {
+            throw new IllegalArgumentException( "illegal weightT value: " + weightT + ", must be non-negative" );
+        }
+        if ( !( weightO >= 0 ) ) {
+            throw new IllegalArgumentException( "illegal weightO value: " + weightO + ", must be non-negative" );
+        }
+        if ( !( weightU >= 0 ) ) {
+            throw new IllegalArgumentException( "illegal weightU value: " + weightU + ", must be non-negative" );
+        }
+        if ( weightT + weightO + weightU <= 0 ) {
+            throw new IllegalArgumentException( "illegal weights: all three are 0, at least one must be positive" );
+        }
+        this.weightT = weightT;
+        this.weightO = weightO;
+        this.weightU = weightU;
+        return this;
+    }
+
+    /**
+     * @param window The size of the unordered window (default: 8).
+     */
+    public SDMSearcher setWindow( int window ) {
+        if ( window < 2 ) {
+            throw new IllegalArgumentException( "illegal window value: " + window + ", must be at least 2" );
+        }
+        this.window = window;
+        return this;
+    }
+
+    /**
+     * @param mu The Dirichlet smoothing parameter (default: 2000).
+     */
+    public SDMSearcher setMu( double mu ) {
+        if ( !( mu > 0 ) ) {
+            throw new IllegalArgumentException( "illegal mu value: " + mu + ", must be positive" );
+        }
+        this.mu = mu;
+        return this;
+    }
+
+    /**
+     * @param numCandidates The number of first-pass results to rerank (default: 1000).
+     */
+    public SDMSearcher setNumCandidates( int numCandidates ) {
+        if ( numCandidates < 1 ) {
+            throw new IllegalArgumentException( "illegal numCandidates value: " + numCandidates + ", must be at least 1" );
+        }
+        this.numCandidates = numCandidates;
+        return this;
+    }
+
+    /**
+     * Search a query with SDM.
+     *
+     * @param qstr A textual query.
+     * @param top  The number of results to retrieve.
+     * @return The top results ranked by SDM scores.
+     * @throws IOException
+     */
+    public TopDocs search( String qstr, int top ) throws IOException {
+        List<String> terms = analyze( qstr );
+        if ( terms.isEmpty() ) {
+            return new TopDocs( new TotalHits( 0, TotalHits.Relation.EQUAL_TO ), new ScoreDoc[0] );
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for ( String term : terms ) {
+            builder.add( new TermQuery( new Term( field, term ) ), BooleanClause.Occur.SHOULD );
+        }
+        TopDocs first = searcher.search( builder.build(), Math.max( top, numCandidates ) );
+        ScoreDoc[] candidates = first.scoreDocs.clone();
+        Arrays.sort( candidates, ( a, b ) -> Integer.compare( a.doc, b.doc ) );
+
+        // collection language model probabilities of the unigrams and windows
+        IndexReader index = searcher.getIndexReader();
+        TermStatsCache stats = TermStatsCache.get( index, TERM_STATS_CACHE_SIZE );
+        double corpusLength = stats.sumTotalTermFreq( field );
+        int numTerms = terms.size();
+        int numPairs = numTerms - 1;
+        double[] pcT = new double[numTerms];
+        double[] pcO = new double[numPairs];
+        double[] pcU = new double[numPairs];
+        for ( int i = 0; i < numTerms; i++ ) {
+            pcT[i] = stats.totalTermFreq( new Term( field, terms.get( i ) ) ) / corpusLength;
+        }
+        for ( int i = 0; i < numPairs; i++ ) {
+            long[] cf = cachedWindowFreqs( index, terms.get( i ), terms.get( i + 1 ) );
+            pcO[i] = cf[0] / corpusLength;
+            pcU[i] = cf[1] / corpusLength;
+        }
+
+        int idx = 0;
+        List<LeafReaderContext> leaves = index.leaves();
+        TermPositions[] positions = new TermPositions[numTerms];
+        for ( int i = 0; i < numTerms; i++ ) {
+            positions[i] = new TermPositions();
+        }
+        for ( LeafReaderContext context : leaves ) {
+            int end = context.docBase + context.reader().maxDoc();
+            if ( idx >= candidates.length || candidates[idx].doc >= end ) {
+                continue;
+            }
+            Terms vocab = context.reader().terms( field );
+            TermsEnum termsEnum = vocab == null ? null : vocab.iterator();
+            for ( int i = 0; i < numTerms; i++ ) {
+                positions[i].reset( termsEnum, terms.get( i ) );
+            }
+            NumericDocValues norms = context.reader().getNormValues( field );
+            for ( ; idx < candidates.length && candidates[idx].doc < end; idx++ ) {
+                int doc = candidates[idx].doc - context.docBase;
+                long length = norms != null && norms.advanceExact( doc ) ? norms.longValue() : 0;
+                for ( TermPositions tp : positions ) {
+                    tp.load( doc );
+                }
+                double score = 0;
+                for ( int i = 0; i < numTerms; i++ ) {
+                    score += weightT * feature( positions[i].freq, pcT[i], length );
+                }
+                for ( int i = 0; i < numPairs; i++ ) {
+                    TermPositions a = positions[i];
+                    TermPositions b = positions[i + 1];
+                    // a window cannot match unless both terms occur in the document
+                    boolean both = a.freq > 0 && b.freq > 0;
+                    score += weightO * feature( both ? countOrdered( a, b ) : 0, pcO[i], length );
+                    score += weightU * feature( both ? countUnordered( a, b, window ) : 0, pcU[i], length );
+                }
+                candidates[idx].score = (float) score;
+            }
+        }
+
+        Arrays.sort( candidates, ( a, b ) -> a.score != b.score ? Float.compare( b.score, a.score ) : Integer.compare( a.doc, b.doc ) );
+        return new TopDocs( first.totalHits, candidates.length > top ? Arrays.copyOf( candidates, top ) : candidates );
+    }
+
+    /**
+     * A feature whose collection frequency is 0 never matches, so it is the same for all documents and it is ignored.
+     */
+    private double feature( int tf, double pc, long length ) {
+        return pc > 0 ? Math.log( ( tf + mu * pc ) / ( length + mu ) ) : 0;
+    }
+
+    private List<String> analyze( String qstr ) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try ( TokenStream ts = analyzer.tokenStream( field, qstr ) ) {
+            CharTermAttribute termAtt = ts.addAttribute( CharTermAttribute.class );
+            ts.reset();
+            while ( ts.incrementToken() ) {
+                terms.add( termAtt.toString() );
+            }
+            ts.end();
+        }
+        return terms;
+    }
+
+    /**
+     * @return The window frequencies of two terms from the reader's cache (counted by {@link #windowFreqs} on a miss).
+     */
+    private long[] cachedWindowFreqs( IndexReader index, String t1, String t2 ) throws IOException {
+        Map<String, long[]> cache = windowCache( index );
+        String key = field + '\u0000' + t1 + '\u0000' + t2 + '\u0000' + window;
+        long[] cf;
+        synchronized ( cache ) {
+            cf = cache.get( key );
+        }
+        if ( cf == null ) {
+            // concurrent misses of the same pair may both count it, which is harmless
+            cf = windowFreqs( t1, t2 );
+            synchronized ( cache ) {
+                cache.put( key, cf );
+            }
+        }
+        return cf;
+    }
+
+    /**
+     * @return The window frequency cache of a reader (created on the first call and dropped when the reader is closed).
+     */
+    private static Map<String, long[]> windowCache( IndexReader index ) {
+        IndexReader.CacheHelper helper = index.getReaderCacheHelper();
+        if ( helper == null ) {
+            return newWindowCache(); // this reader does not support caching
+        }
+        return WINDOW_CACHES.computeIfAbsent( helper.getKey(), k -> {
+            helper.addClosedListener( WINDOW_CACHES::remove );
+            return newWindowCache();
+        } );
+    }
+
+    private static Map<String, long[]> newWindowCache() {
+        return new LinkedHashMap<String, long[]>( 16, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, long[]> eldest ) {
+                return size() > WINDOW_CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Count the ordered (#od1) and unordered (#uwN) window frequencies of two terms in the whole collection.
+     *
+     * @return {cf(#od1(t1 t2)), cf(#uwN(t1 t2))}
+     */
+    private long[] windowFreqs( String t1, String t2 ) throws IOException {
+        long[] cf = new long[2];
+        TermPositions a = new TermPositions();
+        TermPositions b = new TermPositions();
+        for ( LeafReaderContext context : searcher.getIndexReader().leaves() ) {
+            Terms vocab = context.reader().terms( field );
+            if ( vocab == null ) {
+                continue;
+            }
+            TermsEnum termsEnum = vocab.iterator();
+            a.reset( termsEnum, t1 );
+            b.reset( termsEnum, t2 );
+            if ( a.postings == null || b.postings == null ) {
+                continue;
+            }
+            // leapfrog over the documents containing both terms
+            int doc = a.postings.nextDoc();
+            while ( doc != DocIdSetIterator.NO_MORE_DOCS ) {
+                int other = b.postings.docID() < doc ? b.postings.advance( doc ) : b.postings.docID();
+                if ( other == doc ) {
+                    a.load( doc );
+                    b.load( doc );
+                    cf[0] += countOrdered( a, b );
+                    cf[1] += countUnordered( a, b, window );
+                    doc = a.postings.nextDoc();
+                } else if ( other == DocIdSetIterator.NO_MORE_DOCS ) {
+                    break;
+                } else {
+                    doc = a.postings.advance( other );
+                }
+            }
+        }
+        return cf;
+    }
+
+    /**
+     * The number of times b immediately follows a (each position is matched at most once).
+     */
+    private static int countOrdered( TermPositions a, TermPositions b ) {
+        int count = 0;
+        int i = 0, j = 0;
+        while ( i < a.freq && j < b.freq ) {
+            int diff = b.positions[j] - a.positions[i];
+            if ( diff == 1 ) {
+                count++;
+                i++;
+                j++;
+            } else if ( diff > 1 ) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The number of times a and b occur (in any order) within a window of the given size (each position is matched at most once).
+     */
+    private static int countUnordered( TermPositions a, TermPositions b, int window ) {
+        int count = 0;
+        int i = 0, j = 0;
+        while ( i < a.freq && j < b.freq ) {
+            int pa = a.positions[i];
+            int pb = b.positions[j];
+            if ( Math.abs( pa - pb ) < window && pa != pb ) {
+                count++;
+                i++;
+                j++;
+            } else if ( pa < pb ) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The position iterator of a query term in one segment, with the positions of the current document in a reused array.
+     */
+    private static final class TermPositions {
+
+        private PostingsEnum postings;
+        private int[] positions = new int[16];
+        private int freq;
+
+        void reset( TermsEnum termsEnum, String term ) throws IOException {
+            postings = termsEnum != null && termsEnum.seekExact( new BytesRef( term ) )
+                    ? termsEnum.postings( postings, PostingsEnum.POSITIONS ) : null;
+            freq = 0;
+        }
+
+        /**
+         * Move to a document (at or after the current one) and read its positions; freq is 0 if the term does not occur in it.
+         */
+        void load( int doc ) throws IOException {
+            freq = 0;
+            if ( postings == null ) {
+                return;
+            }
+            int current = postings.docID();
+            if ( current < doc ) {
+                current = postings.advance( doc );
+            }
+            if ( current != doc ) {
+                return;
+            }
+            int n = postings.freq();
+            if ( n > positions.length ) {
+                positions = ArrayUtil.grow( positions, n );
+            }
+            for ( int k = 0; k < n; k++ ) {
+                positions[k] = postings.nextPosition();
+            }
+            freq = n;
+        }
+
+    }
+
+}
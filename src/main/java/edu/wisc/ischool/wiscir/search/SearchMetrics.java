@@ -0,0 +1,234 @@
+package edu.wisc.ischool.wiscir.search;
+
+import edu.wisc.ischool.wiscir.utils.LatencyHistogram;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation of the search hot path: a latency histogram for each stage of a query (parse, rewrite, search,
+ * fetch) and for the whole query, and counters of documents collected and stored-field bytes read.
+ * <p>
+ * Typical use:
+ * <pre>
+ * long t = metrics.start();
+ * Query query = parser.parse( qstr );
+ * t = metrics.stop( SearchMetrics.Stage.PARSE, t );
+ * searcher.search( query, metrics.wrap( collector ) );
+ * t = metrics.stop( SearchMetrics.Stage.SEARCH, t );
+ * </pre>
+ * When disabled, start() and stop() return 0 without reading the clock and wrap() returns the collector itself,
+ * so the cost is a volatile read per call. Metrics can be enabled or disabled at any time.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class SearchMetrics implements Closeable {
+
+    /**
+     * The stages of a query.
+     */
+    public enum Stage {
+        /** Parsing the query string (QueryParser). */
+        PARSE,
+        /** Rewriting the query into primitive queries (IndexSearcher.rewrite). */
+        REWRITE,
+        /** Matching and scoring (IndexSearcher.search). */
+        SEARCH,
+        /** Loading stored fields and snippets of the hits (e.g., ResultRenderer). */
+        FETCH
+    }
+
+    private volatile boolean enabled;
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LongAdder docsCollected = new LongAdder();
+    private final LongAdder storedFieldBytes = new LongAdder();
+
+    private ScheduledExecutorService reporter;
+
+    /**
+     * @param enabled Whether to record metrics.
+     */
+    public SearchMetrics( boolean enabled ) {
+        this.enabled = enabled;
+        for ( int i = 0; i < stages.length; i++ ) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    public SearchMetrics setEnabled( boolean enabled ) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The current System.nanoTime() if enabled; otherwise 0.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time of a stage started at startNanos.
+     *
+     * @param stage      The stage.
+     * @param startNanos The value returned by {@link #start()} (or by the previous stop()).
+     * @return The current System.nanoTime() (the start of the next stage) if enabled; otherwise 0.
+     */
+    public long stop( Stage stage, long startNanos ) {
+        if ( !enabled || startNanos == 0 ) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        stages[stage.ordinal()].record( ( now - startNanos ) / 1000 );
+        return now;
+    }
+
+    /**
+     * Record the time of a whole query started at startNanos.
+     *
+     * @param startNanos The value returned by {@link #start()} at the beginning of the query.
+     */
+    public void stopQuery( long startNanos ) {
+        if ( enabled && startNanos != 0 ) {
+            total.recordSince( startNanos );
+        }
+    }
+
+    /**
+     * @return A collector that counts the documents passed to its collect() (see {@link #getDocsCollected()}) if enabled;
+     * otherwise the collector itself.
+     */
+    public Collector wrap( Collector collector ) {
+        if ( !enabled ) {
+            return collector;
+        }
+        return new FilterCollector( collector ) {
+            @Override
+            public LeafCollector getLeafCollector( LeafReaderContext context ) throws IOException {
+                return new FilterLeafCollector( super.getLeafCollector( context ) ) {
+                    @Override
+                    public void collect( int doc ) throws IOException {
+                        docsCollected.increment();
+                        super.collect( doc );
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Count stored-field bytes read.
+     */
+    public void addStoredFieldBytes( long bytes ) {
+        if ( enabled ) {
+            storedFieldBytes.add( bytes );
+        }
+    }
+
+    public LatencyHistogram getHistogram( Stage stage ) {
+        return stages[stage.ordinal()];
+    }
+
+    public LatencyHistogram getQueryHistogram() {
+        return total;
+    }
+
+    /**
+     * @return The number of documents passed to the collectors returned by {@link #wrap(Collector)}. It is not a count
+     * of postings read: documents skipped by dynamic pruning (e.g., block-max WAND under a top-k collector) are never
+     * collected although their postings may have been read, and neither are postings of documents that do not match.
+     */
+    public long getDocsCollected() {
+        return docsCollected.sum();
+    }
+
+    public long getStoredFieldBytes() {
+        return storedFieldBytes.sum();
+    }
+
+    /**
+     * Remove all recorded values.
+     */
+    public void reset() {
+        for ( LatencyHistogram histogram : stages ) {
+            histogram.reset();
+        }
+        total.reset();
+        docsCollected.reset();
+        storedFieldBytes.reset();
+    }
+
+    /**
+     * Print the metrics at a fixed interval (in a background daemon thread).
+     *
+     * @param intervalMillis The interval in milliseconds.
+     * @param json           Whether to print JSON (one line per dump) or text.
+     * @param out            Where to print the metrics.
+     */
+    public synchronized void startReporting( long intervalMillis, boolean json, PrintStream out ) {
+        if ( reporter != null ) {
+            throw new IllegalStateException( "reporting has already started" );
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread t = new Thread( r, "search-metrics" );
+            t.setDaemon( true );
+            return t;
+        } );
+        reporter.scheduleAtFixedRate( () -> out.println( json ? toJson() : toString() ), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Stop reporting (if started).
+     */
+    @Override
+    public synchronized void close() {
+        if ( reporter != null ) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( String.format( Locale.ROOT, "%-8s%s\n", "query", total ) );
+        for ( Stage stage : Stage.values() ) {
+            sb.append( String.format( Locale.ROOT, "%-8s%s\n", stage.name().toLowerCase( Locale.ROOT ), getHistogram( stage ) ) );
+        }
+        sb.append( String.format( Locale.ROOT, "docsCollected=%d storedFieldBytes=%d", getDocsCollected(), getStoredFieldBytes() ) );
+        return sb.toString();
+    }
+
+    /**
+     * @return The metrics as a JSON object.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "{\"query\":" ).append( total.toJson() );
+        for ( Stage stage : Stage.values() ) {
+            sb.append( ",\"" ).append( stage.name().toLowerCase( Locale.ROOT ) ).append( "\":" ).append( getHistogram( stage ).toJson() );
+        }
+        sb.append( ",\"docsCollected\":" ).append( getDocsCollected() );
+        sb.append( ",\"storedFieldBytes\":" ).append( getStoredFieldBytes() );
+        return sb.append( '}' ).toString();
+    }
+
+}
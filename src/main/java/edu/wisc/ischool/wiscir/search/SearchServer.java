@@ -0,0 +1,438 @@
+package edu.wisc.ischool.wiscir.search;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.wisc.ischool.wiscir.utils.LuceneUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TimeLimitingCollector;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lightweight HTTP search service (JDK's built-in HttpServer) over the warm searchers of a {@link WarmSearcherManager}.
+ * <p>
+ * Endpoints:
+ * <pre>
+ * GET /search?q=query+reformulation&amp;k=10&amp;timeout=1000&amp;snippet=false
+ *     (q is searched as plain text, a bag of the analyzer's tokens; timeout must be positive and is capped at maxTimeoutMillis)
+ *     {"query":"...","totalHits":123,"timedOut":false,"tookMillis":1.23,"hits":[{"rank":1,"docno":"...","title":"...","score":1.23}, ...]}
+ * GET /health
+ *     {"status":"ok"}
+ * GET /metrics
+ *     latency histograms of the query stages and counters (see {@link SearchMetrics}; only if metrics are set)
+ * </pre>
+ * The HTTP dispatcher thread only stamps the time a search request is accepted and hands it to a bounded
+ * ThreadPoolExecutor of maxConcurrent workers (virtual threads on Java 21+, platform threads on older versions) with
+ * a queue of at most maxQueued requests. Under overload, tail latency is protected by:
+ * <ul>
+ *   <li>admission control: at most maxConcurrent searches run at the same time; a request arriving when the queue is
+ *   full is answered with 503 right away by the pool's rejection handler, instead of piling up;</li>
+ *   <li>per-request deadlines measured from the accept time: a request that is already past its deadline when a
+ *   worker picks it up is answered with 503 without searching, and a search is stopped at its deadline (timeout
+ *   parameter, or the default timeout) and returns the best results collected so far with "timedOut":true.</li>
+ * </ul>
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class SearchServer implements Closeable {
+
+    private static final int MAX_K = 1000;
+
+    private final WarmSearcherManager manager;
+    private final Analyzer analyzer;
+    private final String field;
+    private final InetSocketAddress address;
+
+    private String fieldDocno = "docno";
+    private String fieldTitle = "title";
+    private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+    private int maxQueued = 4 * Runtime.getRuntime().availableProcessors();
+    private long defaultTimeoutMillis = 1000;
+    private long maxTimeoutMillis = 10000;
+    private SearchMetrics metrics;
+
+    private HttpServer server;
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * @param manager  The manager of the searchers.
+     * @param analyzer The analyzer for parsing queries (it should be the same as the one used for indexing).
+     * @param field    The field to search.
+     * @param address  The address to listen on.
+     */
+    public SearchServer( WarmSearcherManager manager, Analyzer analyzer, String field, InetSocketAddress address ) {
+        this.manager = manager;
+        this.analyzer = analyzer;
+        this.field = field;
+        this.address = address;
+    }
+
+    /**
+     * @param fieldDocno The name of the field you used for storing docnos (default: "docno").
+     */
+    public SearchServer setFieldDocno( String fieldDocno ) {
+        this.fieldDocno = fieldDocno;
+        return this;
+    }
+
+    /**
+     * @param fieldTitle The name of the stored title field (default: "title").
+     */
+    public SearchServer setFieldTitle( String fieldTitle ) {
+        this.fieldTitle = fieldTitle;
+        return this;
+    }
+
+    /**
+     * @param maxConcurrent The maximum number of searches running at the same time (default: the number of processors).
+     */
+    public SearchServer setMaxConcurrent( int maxConcurrent ) {
+        if ( maxConcurrent < 1 ) {
+            throw new IllegalArgumentException( "illegal maxConcurrent value: " + maxConcurrent + ", must be at least 1" );
+        }
+        this.maxConcurrent = maxConcurrent;
+        return this;
+    }
+
+    /**
+     * @param maxQueued The maximum number of requests waiting for a worker; more are rejected with 503 (default: 4 x the number of processors).
+     */
+    public SearchServer setMaxQueued( int maxQueued ) {
+        if ( maxQueued < 1 ) {
+            throw new IllegalArgumentException( "illegal maxQueued value: " + maxQueued + ", must be at least 1" );
+        }
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * @param defaultTimeoutMillis The deadline of a request without the timeout parameter (default: 1000).
+     */
+    public SearchServer setDefaultTimeoutMillis( long defaultTimeoutMillis ) {
+        if ( defaultTimeoutMillis < 1 ) {
+            throw new IllegalArgumentException( "illegal defaultTimeoutMillis value: " + defaultTimeoutMillis + ", must be at least 1" );
+        }
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * @param maxTimeoutMillis The largest deadline a request can ask for; larger timeout parameters are capped,
+     *                         so that a client cannot hold a worker for long (default: 10000).
+     */
+    public SearchServer setMaxTimeoutMillis( long maxTimeoutMillis ) {
+        if ( maxTimeoutMillis < 1 ) {
+            throw new IllegalArgumentException( "illegal maxTimeoutMillis value: " + maxTimeoutMillis + ", must be at least 1" );
+        }
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * @param metrics Where to record the time of each query stage (parse, rewrite, search, fetch) and the counters;
+     *                or null (default). The metrics are also served at /metrics.
+     */
+    public SearchServer setMetrics( SearchMetrics metrics ) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Start serving requests (in background threads).
+     *
+     * @throws IOException if the server cannot listen on the address.
+     */
+    public synchronized void start() throws IOException {
+        if ( server != null ) {
+            throw new IllegalStateException( "the server has already started" );
+        }
+        RejectedExecutionHandler overloaded = ( task, pool ) -> {
+            rejected.incrementAndGet();
+            sendQuietly( ( (SearchTask) task ).exchange, 503, "{\"error\":\"overloaded\"}" );
+        };
+        executor = new ThreadPoolExecutor( maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>( maxQueued ), newWorkerFactory(), overloaded );
+        server = HttpServer.create( address, 0 );
+        // handlers run on the dispatcher thread: /search only hands the request to the pool, the others are trivial
+        server.createContext( "/search", exchange -> executor.execute( new SearchTask( exchange, System.nanoTime() ) ) );
+        server.createContext( "/health", exchange -> send( exchange, 200, "{\"status\":\"ok\"}" ) );
+        if ( metrics != null ) {
+            server.createContext( "/metrics", exchange -> send( exchange, 200, metrics.toJson() ) );
+        }
+        server.setExecutor( null );
+        server.start();
+    }
+
+    /**
+     * Virtual threads on Java 21+ (looked up by reflection since this project targets Java 11);
+     * otherwise daemon platform threads.
+     */
+    private static ThreadFactory newWorkerFactory() {
+        try {
+            Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            builder = Class.forName( "java.lang.Thread$Builder" ).getMethod( "name", String.class, long.class ).invoke( builder, "search-", 0L );
+            return (ThreadFactory) Class.forName( "java.lang.Thread$Builder" ).getMethod( "factory" ).invoke( builder );
+        } catch ( ReflectiveOperationException e ) {
+            AtomicInteger count = new AtomicInteger();
+            return r -> {
+                Thread t = new Thread( r, "search-" + count.getAndIncrement() );
+                t.setDaemon( true );
+                return t;
+            };
+        }
+    }
+
+    /**
+     * A search request waiting for a worker.
+     */
+    private final class SearchTask implements Runnable {
+
+        private final HttpExchange exchange;
+        private final long acceptNanos;
+
+        SearchTask( HttpExchange exchange, long acceptNanos ) {
+            this.exchange = exchange;
+            this.acceptNanos = acceptNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                handleSearch( exchange, acceptNanos );
+            } catch ( IOException e ) {
+                exchange.close(); // the client is gone
+            }
+        }
+
+    }
+
+    /**
+     * @return The port the server listens on (useful if it was started on port 0).
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleSearch( HttpExchange exchange, long start ) throws IOException {
+        try {
+            Map<String, String> params = parseParams( exchange.getRequestURI().getRawQuery() );
+            String qstr = params.get( "q" );
+            if ( qstr == null || qstr.trim().isEmpty() ) {
+                send( exchange, 400, "{\"error\":\"missing parameter q\"}" );
+                return;
+            }
+            int k = Math.max( 1, Math.min( MAX_K, Integer.parseInt( params.getOrDefault( "k", "10" ) ) ) );
+            long timeoutMillis = Long.parseLong( params.getOrDefault( "timeout", String.valueOf( defaultTimeoutMillis ) ) );
+            if ( timeoutMillis <= 0 ) {
+                send( exchange, 400, "{\"error\":\"timeout must be positive\"}" );
+                return;
+            }
+            timeoutMillis = Math.min( timeoutMillis, maxTimeoutMillis );
+            boolean snippet = Boolean.parseBoolean( params.getOrDefault( "snippet", "false" ) );
+
+            // the deadline counts the time spent in the queue; do not search for a client that has given up
+            long remainingMillis = timeoutMillis - ( System.nanoTime() - start ) / 1000000;
+            if ( remainingMillis <= 0 ) {
+                rejected.incrementAndGet();
+                send( exchange, 503, "{\"error\":\"deadline exceeded\"}" );
+                return;
+            }
+            IndexSearcher searcher = manager.acquire();
+            try {
+                long t0 = metrics == null ? 0 : metrics.start();
+                long t = t0;
+                Query query = LuceneUtils.textQuery( analyzer, field, qstr );
+                if ( metrics != null ) {
+                    t = metrics.stop( SearchMetrics.Stage.PARSE, t );
+                    query = searcher.rewrite( query );
+                    t = metrics.stop( SearchMetrics.Stage.REWRITE, t );
+                }
+                TopScoreDocCollector collector = TopScoreDocCollector.create( k, 1000 );
+                Collector counted = metrics == null ? collector : metrics.wrap( collector );
+                boolean stopped = false;
+                try {
+                    searcher.search( query, new TimeLimitingCollector( counted, TimeLimitingCollector.getGlobalCounter(), remainingMillis ) );
+                } catch ( TimeLimitingCollector.TimeExceededException e ) {
+                    stopped = true;
+                    timedOut.incrementAndGet();
+                }
+                TopDocs docs = collector.topDocs();
+                if ( metrics != null ) {
+                    t = metrics.stop( SearchMetrics.Stage.SEARCH, t );
+                }
+                List<ResultRenderer.Result> results = new ResultRenderer( searcher.getIndexReader(), analyzer, field, fieldDocno, fieldTitle )
+                        .setSnippets( snippet ).setCacheSize( 0 ).setMetrics( metrics ).render( qstr, docs );
+                if ( metrics != null ) {
+                    metrics.stop( SearchMetrics.Stage.FETCH, t );
+                    metrics.stopQuery( t0 );
+                }
+                send( exchange, 200, toJson( qstr, docs, results, stopped, ( System.nanoTime() - start ) / 1e6 ) );
+                served.incrementAndGet();
+            } finally {
+                manager.release( searcher );
+            }
+        } catch ( NumberFormatException e ) {
+            send( exchange, 400, "{\"error\":" + quote( e.getMessage() ) + "}" );
+        } catch ( IOException | RuntimeException e ) {
+            send( exchange, 500, "{\"error\":" + quote( String.valueOf( e ) ) + "}" );
+        }
+    }
+
+    private String toJson( String qstr, TopDocs docs, List<ResultRenderer.Result> results, boolean stopped, double tookMillis ) {
+        StringBuilder sb = new StringBuilder( 128 + results.size() * 128 );
+        sb.append( "{\"query\":" ).append( quote( qstr ) )
+                .append( ",\"totalHits\":" ).append( docs.totalHits.value )
+                .append( ",\"timedOut\":" ).append( stopped )
+                .append( ",\"tookMillis\":" ).append( String.format( Locale.ROOT, "%.2f", tookMillis ) )
+                .append( ",\"hits\":[" );
+        for ( int i = 0; i < results.size(); i++ ) {
+            ResultRenderer.Result result = results.get( i );
+            sb.append( i > 0 ? "," : "" )
+                    .append( "{\"rank\":" ).append( result.getRank() )
+                    .append( ",\"docno\":" ).append( quote( result.getField( fieldDocno ) ) )
+                    .append( ",\"title\":" ).append( quote( result.getField( fieldTitle ) ) )
+                    .append( ",\"score\":" ).append( result.getScore() );
+            if ( result.getSnippet() != null ) {
+                sb.append( ",\"snippet\":" ).append( quote( result.getSnippet() ) );
+            }
+            sb.append( '}' );
+        }
+        return sb.append( "]}" ).toString();
+    }
+
+    private static String quote( String str ) {
+        if ( str == null ) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder( str.length() + 2 ).append( '"' );
+        for ( int i = 0; i < str.length(); i++ ) {
+            char c = str.charAt( i );
+            switch ( c ) {
+                case '"':
+                    sb.append( "\\\"" );
+                    break;
+                case '\\':
+                    sb.append( "\\\\" );
+                    break;
+                case '\n':
+                    sb.append( "\\n" );
+                    break;
+                case '\r':
+                    sb.append( "\\r" );
+                    break;
+                case '\t':
+                    sb.append( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 ) {
+                        sb.append( String.format( "\\u%04x", (int) c ) );
+                    } else {
+                        sb.append( c );
+                    }
+            }
+        }
+        return sb.append( '"' ).toString();
+    }
+
+    private static Map<String, String> parseParams( String rawQuery ) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if ( rawQuery != null ) {
+            for ( String param : rawQuery.split( "&" ) ) {
+                int eq = param.indexOf( '=' );
+                String name = URLDecoder.decode( eq < 0 ? param : param.substring( 0, eq ), "UTF-8" );
+                String value = eq < 0 ? "" : URLDecoder.decode( param.substring( eq + 1 ), "UTF-8" );
+                params.putIfAbsent( name, value );
+            }
+        }
+        return params;
+    }
+
+    private static void send( HttpExchange exchange, int status, String json ) throws IOException {
+        byte[] body = json.getBytes( StandardCharsets.UTF_8 );
+        exchange.getResponseHeaders().set( "Content-Type", "application/json; charset=utf-8" );
+        exchange.sendResponseHeaders( status, body.length );
+        try ( OutputStream out = exchange.getResponseBody() ) {
+            out.write( body );
+        }
+    }
+
+    /**
+     * Send a response from the dispatcher thread (a client that is gone must not stop the server).
+     */
+    private static void sendQuietly( HttpExchange exchange, int status, String json ) {
+        try {
+            send( exchange, status, json );
+        } catch ( IOException e ) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return The number of requests answered with results.
+     */
+    public long getServedCount() {
+        return served.get();
+    }
+
+    /**
+     * @return The number of requests rejected by admission control (queue full) or past their deadlines before searching.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return The number of searches stopped at their deadlines.
+     */
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * Stop the server: queued requests are answered with 503 and the searches in progress get at most one second
+     * to finish. It does not close the searcher manager.
+     */
+    @Override
+    public synchronized void close() {
+        if ( server != null ) {
+            executor.shutdown(); // requests arriving from now on are rejected with 503
+            List<Runnable> queued = new ArrayList<>();
+            executor.getQueue().drainTo( queued );
+            for ( Runnable task : queued ) {
+                sendQuietly( ( (SearchTask) task ).exchange, 503, "{\"error\":\"shutting down\"}" );
+            }
+            server.stop( 1 );
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+}
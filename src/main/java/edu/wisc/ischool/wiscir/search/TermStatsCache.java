@@ -0,0 +1,235 @@
+package edu.wisc.ischool.wiscir.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermStates;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent cache of term statistics for one IndexReader.
+ * <p>
+ * For each term, it caches the term's {@link TermStates}, i.e., the result of seeking the term in the term dictionary
+ * of every segment, together with the term's docFreq and totalTermFreq. A TermQuery created with cached TermStates
+ * (see {@link #rewrite(Query)}) skips the term dictionary seeks when it is searched, so frequent (head) query terms
+ * are only looked up once per reader. For each field, it caches sumTotalTermFreq, sumDocFreq, and docCount.
+ * <p>
+ * The cache holds at most maxSize terms in an access-ordered LinkedHashMap; when it is full, adding a term evicts
+ * the least recently used one (in O(1); the map is guarded by a lock, but TermStates are built outside of it).
+ * A cache is only valid for the reader it was created for: use {@link #get(IndexReader, int)} to get the cache
+ * of a reader, which is dropped when the reader is closed (a reopened reader gets a new cache).
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class TermStatsCache {
+
+    private static final Map<IndexReader.CacheKey, TermStatsCache> CACHES = new ConcurrentHashMap<>();
+
+    private final IndexReader index;
+    private final int maxSize;
+    private final Map<Term, TermStates> terms;
+    private final Map<String, CollectionStatistics> fields = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param index   An index reader.
+     * @param maxSize The maximum number of cached terms.
+     */
+    public TermStatsCache( IndexReader index, int maxSize ) {
+        if ( maxSize < 1 ) {
+            throw new IllegalArgumentException( "illegal maxSize value: " + maxSize + ", must be at least 1" );
+        }
+        this.index = index;
+        this.maxSize = maxSize;
+        this.terms = new LinkedHashMap<Term, TermStates>( 16, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Term, TermStates> eldest ) {
+                return size() > TermStatsCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the cache of an index reader (created on the first call and dropped when the reader is closed).
+     *
+     * @param index   An index reader.
+     * @param maxSize The maximum number of cached terms (only used when the cache is created).
+     * @return The term statistics cache of the reader.
+     */
+    public static TermStatsCache get( IndexReader index, int maxSize ) {
+        IndexReader.CacheHelper helper = index.getReaderCacheHelper();
+        if ( helper == null ) {
+            return new TermStatsCache( index, maxSize ); // this reader does not support caching
+        }
+        IndexReader.CacheKey key = helper.getKey();
+        return CACHES.computeIfAbsent( key, k -> {
+            helper.addClosedListener( CACHES::remove );
+            return new TermStatsCache( index, maxSize );
+        } );
+    }
+
+    /**
+     * @return The index reader of this cache.
+     */
+    public IndexReader getIndexReader() {
+        return index;
+    }
+
+    /**
+     * @param term A term.
+     * @return The term's states in all segments of the reader (with docFreq and totalTermFreq).
+     * @throws IOException
+     */
+    public TermStates termStates( Term term ) throws IOException {
+        TermStates states;
+        synchronized ( terms ) {
+            states = terms.get( term );
+        }
+        if ( states != null ) {
+            hits.incrementAndGet();
+            return states;
+        }
+        misses.incrementAndGet();
+        // concurrent misses of the same term may both build the states, which is harmless
+        states = TermStates.build( index.getContext(), term, true );
+        synchronized ( terms ) {
+            TermStates prev = terms.putIfAbsent( term, states );
+            return prev != null ? prev : states;
+        }
+    }
+
+    /**
+     * @param term A term.
+     * @return The number of documents containing the term (same as {@link IndexReader#docFreq(Term)}).
+     * @throws IOException
+     */
+    public int docFreq( Term term ) throws IOException {
+        return termStates( term ).docFreq();
+    }
+
+    /**
+     * @param term A term.
+     * @return The total frequency of the term (same as {@link IndexReader#totalTermFreq(Term)}).
+     * @throws IOException
+     */
+    public long totalTermFreq( Term term ) throws IOException {
+        return termStates( term ).totalTermFreq();
+    }
+
+    /**
+     * @param field A field.
+     * @return The statistics of the field (sumTotalTermFreq, sumDocFreq, docCount); or null if no document has the field.
+     * @throws IOException
+     */
+    public CollectionStatistics collectionStatistics( String field ) throws IOException {
+        CollectionStatistics stats = fields.get( field );
+        if ( stats == null ) {
+            int docCount = index.getDocCount( field );
+            if ( docCount == 0 ) {
+                return null;
+            }
+            stats = new CollectionStatistics( field, index.maxDoc(), docCount, index.getSumTotalTermFreq( field ), index.getSumDocFreq( field ) );
+            fields.putIfAbsent( field, stats );
+        }
+        return stats;
+    }
+
+    /**
+     * @param field A field.
+     * @return The total length of the field in the collection (same as {@link IndexReader#getSumTotalTermFreq(String)}).
+     * @throws IOException
+     */
+    public long sumTotalTermFreq( String field ) throws IOException {
+        CollectionStatistics stats = collectionStatistics( field );
+        return stats == null ? 0 : stats.sumTotalTermFreq();
+    }
+
+    /**
+     * @param field A field.
+     * @return The number of documents with the field (same as {@link IndexReader#getDocCount(String)}).
+     * @throws IOException
+     */
+    public long docCount( String field ) throws IOException {
+        CollectionStatistics stats = collectionStatistics( field );
+        return stats == null ? 0 : stats.docCount();
+    }
+
+    /**
+     * Replace the TermQuery objects in a query (including those nested in BooleanQuery and BoostQuery)
+     * by TermQuery objects with cached TermStates. Other types of queries are not changed.
+     *
+     * @param query A query.
+     * @return A query that searches the same as the original one but does not need to seek cached terms.
+     * @throws IOException
+     */
+    public Query rewrite( Query query ) throws IOException {
+        if ( query instanceof TermQuery ) {
+            Term term = ( (TermQuery) query ).getTerm();
+            return new TermQuery( term, termStates( term ) );
+        } else if ( query instanceof BoostQuery ) {
+            BoostQuery bq = (BoostQuery) query;
+            return new BoostQuery( rewrite( bq.getQuery() ), bq.getBoost() );
+        } else if ( query instanceof BooleanQuery ) {
+            BooleanQuery bq = (BooleanQuery) query;
+            BooleanQuery.Builder builder = new BooleanQuery.Builder();
+            builder.setMinimumNumberShouldMatch( bq.getMinimumNumberShouldMatch() );
+            for ( BooleanClause clause : bq.clauses() ) {
+                builder.add( rewrite( clause.getQuery() ), clause.getOccur() );
+            }
+            return builder.build();
+        }
+        return query;
+    }
+
+    /**
+     * Create a searcher of the cache's reader that uses the cached statistics:
+     * queries are rewritten by {@link #rewrite(Query)} and field statistics come from the cache.
+     *
+     * @return A searcher (set its similarity as usual).
+     */
+    public IndexSearcher newSearcher() {
+        return new IndexSearcher( index ) {
+            @Override
+            public Query rewrite( Query original ) throws IOException {
+                return super.rewrite( TermStatsCache.this.rewrite( original ) );
+            }
+
+            @Override
+            public CollectionStatistics collectionStatistics( String field ) throws IOException {
+                return TermStatsCache.this.collectionStatistics( field );
+            }
+        };
+    }
+
+    /**
+     * @return The number of cached terms.
+     */
+    public int size() {
+        synchronized ( terms ) {
+            return terms.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+}
@@ -0,0 +1,155 @@
+package edu.wisc.ischool.wiscir.search;
+
+import edu.wisc.ischool.wiscir.examples.BM25SimilarityOriginal;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-lived manager of IndexSearchers for services that search an index which may change over time.
+ * <p>
+ * It wraps Lucene's {@link SearcherManager}: a refresh reopens the reader with DirectoryReader.openIfChanged,
+ * which only opens the new or changed segments and shares the unchanged ones with the current reader.
+ * Every new searcher gets a {@link BM25SimilarityOriginal} and runs the configured warm-up queries
+ * before it is swapped in, so that queries never pay for cold caches or see a different scoring function.
+ * <p>
+ * Usage:
+ * <pre>
+ * IndexSearcher searcher = manager.acquire();
+ * try {
+ *     ...
+ * } finally {
+ *     manager.release( searcher );
+ * }
+ * </pre>
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class WarmSearcherManager implements Closeable {
+
+    private final SearcherManager manager;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Manage searchers of the committed index in a directory.
+     *
+     * @param dir            The index directory.
+     * @param similarity     The similarity set to every searcher.
+     * @param warmupQueries  Queries to run (top 10) on each new searcher before it is used.
+     * @param searchExecutor An executor for searching segments in parallel; or null to search on the calling thread.
+     * @throws IOException
+     */
+    public WarmSearcherManager( Directory dir, BM25SimilarityOriginal similarity, List<Query> warmupQueries, Executor searchExecutor ) throws IOException {
+        this.manager = new SearcherManager( dir, new WarmingSearcherFactory( similarity, warmupQueries, searchExecutor ) );
+    }
+
+    /**
+     * Manage near-real-time searchers of an index writer (they can see documents not yet committed).
+     *
+     * @param writer         The index writer.
+     * @param similarity     The similarity set to every searcher.
+     * @param warmupQueries  Queries to run (top 10) on each new searcher before it is used.
+     * @param searchExecutor An executor for searching segments in parallel; or null to search on the calling thread.
+     * @throws IOException
+     */
+    public WarmSearcherManager( IndexWriter writer, BM25SimilarityOriginal similarity, List<Query> warmupQueries, Executor searchExecutor ) throws IOException {
+        this.manager = new SearcherManager( writer, new WarmingSearcherFactory( similarity, warmupQueries, searchExecutor ) );
+    }
+
+    /**
+     * @return The current searcher. Always {@link #release(IndexSearcher)} it after use.
+     * @throws IOException
+     */
+    public IndexSearcher acquire() throws IOException {
+        return manager.acquire();
+    }
+
+    /**
+     * @param searcher A searcher returned by {@link #acquire()}.
+     * @throws IOException
+     */
+    public void release( IndexSearcher searcher ) throws IOException {
+        manager.release( searcher );
+    }
+
+    /**
+     * Reopen (and warm up) the searcher if the index has changed; otherwise this is a cheap no-op.
+     *
+     * @return true if the searcher is now up to date.
+     * @throws IOException
+     */
+    public boolean maybeRefresh() throws IOException {
+        return manager.maybeRefresh();
+    }
+
+    /**
+     * Refresh the searcher in the background at a fixed interval.
+     *
+     * @param intervalMillis The refresh interval in milliseconds.
+     */
+    public synchronized void startAutoRefresh( long intervalMillis ) {
+        if ( refresher != null ) {
+            throw new IllegalStateException( "auto refresh has already started" );
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread t = new Thread( r, "searcher-refresh" );
+            t.setDaemon( true );
+            return t;
+        } );
+        refresher.scheduleWithFixedDelay( () -> {
+            try {
+                manager.maybeRefresh();
+            } catch ( IOException e ) {
+                e.printStackTrace();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS );
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if ( refresher != null ) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+        manager.close();
+    }
+
+    private static class WarmingSearcherFactory extends SearcherFactory {
+
+        private final BM25SimilarityOriginal similarity;
+        private final List<Query> warmupQueries;
+        private final Executor searchExecutor;
+
+        WarmingSearcherFactory( BM25SimilarityOriginal similarity, List<Query> warmupQueries, Executor searchExecutor ) {
+            this.similarity = similarity;
+            this.warmupQueries = new ArrayList<>( warmupQueries );
+            this.searchExecutor = searchExecutor;
+        }
+
+        @Override
+        public IndexSearcher newSearcher( IndexReader reader, IndexReader previousReader ) throws IOException {
+            IndexSearcher searcher = new IndexSearcher( reader, searchExecutor );
+            searcher.setSimilarity( similarity );
+            for ( Query query : warmupQueries ) {
+                searcher.search( query, 10 );
+            }
+            return searcher;
+        }
+
+    }
+
+}
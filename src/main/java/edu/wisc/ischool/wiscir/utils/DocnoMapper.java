@@ -0,0 +1,249 @@
+package edu.wisc.ischool.wiscir.utils;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A cached, two-way mapping between internal docids and docnos (external IDs) of an index.
+ * <p>
+ * Compared with {@link LuceneUtils#getDocno(IndexReader, String, int)} and
+ * {@link LuceneUtils#findByDocno(IndexReader, String, String)}, which load a stored document or open a
+ * postings list for every call, the mapper walks the docno field's term dictionary once and keeps:
+ * <ul>
+ *   <li>a docid -&gt; docno table (docno bytes in paged byte blocks plus an offset table);</li>
+ *   <li>a docno -&gt; docid open-addressing hash table of int docids.</li>
+ * </ul>
+ * Mappers are cached per IndexReader instance and dropped when the reader is closed.
+ * A reopened reader (e.g., from DirectoryReader.openIfChanged) is a new instance and gets a new mapper.
+ * Concurrent calls for the same reader and field wait for a single build, while mappers of other readers or fields
+ * are built in parallel. Lookups are thread-safe.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class DocnoMapper {
+
+    private static final Map<CacheKey, CompletableFuture<DocnoMapper>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The largest hash table (a mapper supports fewer documents than that).
+     */
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    private final PagedBytes.Reader bytes;
+    private final long[] starts; // start of each docid's (length-prefixed) docno in bytes; -1 if the document has no docno
+    private final int[] table; // docids hashed by docno; -1 for empty slots
+    private final int mask;
+
+    /**
+     * Get the mapper of an index reader (built on the first call and cached until the reader is closed).
+     *
+     * @param index      An index reader.
+     * @param fieldDocno The name of the field you used for storing docnos (external document IDs).
+     * @return The docid-docno mapper.
+     * @throws IOException
+     */
+    public static DocnoMapper get( IndexReader index, String fieldDocno ) throws IOException {
+        IndexReader.CacheHelper helper = index.getReaderCacheHelper();
+        if ( helper == null ) {
+            return new DocnoMapper( index, fieldDocno ); // this reader does not support caching
+        }
+        CacheKey key = new CacheKey( helper.getKey(), fieldDocno );
+        CompletableFuture<DocnoMapper> created = new CompletableFuture<>();
+        CompletableFuture<DocnoMapper> future = CACHE.computeIfAbsent( key, k -> created );
+        if ( future == created ) {
+            // this thread builds the mapper; the others wait for the same future
+            try {
+                IndexReader.CacheKey readerKey = helper.getKey();
+                helper.addClosedListener( closed -> CACHE.keySet().removeIf( k -> k.reader == readerKey ) );
+                created.complete( new DocnoMapper( index, fieldDocno ) );
+            } catch ( Throwable t ) {
+                // do not cache the failure, and complete the future even on an Error so that the waiting threads return
+                CACHE.remove( key, created );
+                created.completeExceptionally( t );
+                throw t;
+            }
+        }
+        try {
+            return future.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( e );
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            if ( e.getCause() instanceof Error ) {
+                throw (Error) e.getCause();
+            }
+            throw new IOException( e.getCause() );
+        }
+    }
+
+    private DocnoMapper( IndexReader index, String fieldDocno ) throws IOException {
+        int maxDoc = index.maxDoc();
+        starts = new long[maxDoc];
+        Arrays.fill( starts, -1 );
+        if ( maxDoc >= MAX_TABLE_SIZE ) {
+            throw new IllegalArgumentException( "too many documents for a docno mapper: " + maxDoc + ", must be less than " + MAX_TABLE_SIZE );
+        }
+        // the smallest power of 2 >= 2 * maxDoc (load factor <= 0.5), computed in long as 2 * maxDoc overflows an int
+        long capacity = Math.max( 2L, Long.highestOneBit( 2L * Math.max( 1, maxDoc ) - 1 ) << 1 );
+        int size = (int) Math.min( capacity, MAX_TABLE_SIZE );
+        table = new int[size];
+        Arrays.fill( table, -1 );
+        mask = size - 1;
+
+        PagedBytes paged = new PagedBytes( 15 );
+        for ( LeafReaderContext context : index.leaves() ) {
+            LeafReader leaf = context.reader();
+            Terms terms = leaf.terms( fieldDocno );
+            if ( terms == null ) {
+                continue;
+            }
+            Bits liveDocs = leaf.getLiveDocs();
+            TermsEnum termsEnum = terms.iterator();
+            PostingsEnum postings = null;
+            BytesRef term;
+            while ( ( term = termsEnum.next() ) != null ) {
+                postings = termsEnum.postings( postings, PostingsEnum.NONE );
+                long start = -1;
+                int doc;
+                while ( ( doc = postings.nextDoc() ) != PostingsEnum.NO_MORE_DOCS ) {
+                    if ( liveDocs != null && !liveDocs.get( doc ) ) {
+                        continue;
+                    }
+                    if ( start < 0 ) {
+                        start = paged.copyUsingLengthPrefix( term );
+                    }
+                    starts[context.docBase + doc] = start;
+                }
+            }
+        }
+        bytes = paged.freeze( true );
+
+        // Insert in docid order so that, as in LuceneUtils.findByDocno, a duplicated docno maps to its smallest docid.
+        BytesRef spare = new BytesRef();
+        BytesRef other = new BytesRef();
+        for ( int docid = 0; docid < maxDoc; docid++ ) {
+            if ( starts[docid] < 0 ) {
+                continue;
+            }
+            fill( spare, docid );
+            int slot = StringHelper.murmurhash3_x86_32( spare, 0 ) & mask;
+            while ( table[slot] >= 0 && !fill( other, table[slot] ).bytesEquals( spare ) ) {
+                slot = ( slot + 1 ) & mask;
+            }
+            if ( table[slot] < 0 ) {
+                table[slot] = docid;
+            }
+        }
+    }
+
+    private BytesRef fill( BytesRef ref, int docid ) {
+        bytes.fill( ref, starts[docid] );
+        return ref;
+    }
+
+    /**
+     * @param docid The internal ID of a document.
+     * @return The docno of the document; or null if the document has no docno (or was deleted).
+     */
+    public String getDocno( int docid ) {
+        if ( starts[docid] < 0 ) {
+            return null;
+        }
+        return fill( new BytesRef(), docid ).utf8ToString();
+    }
+
+    /**
+     * @param docids A list of internal IDs.
+     * @return The docnos of the documents (null for documents without a docno).
+     */
+    public String[] getDocnos( int[] docids ) {
+        String[] docnos = new String[docids.length];
+        BytesRef spare = new BytesRef();
+        for ( int i = 0; i < docids.length; i++ ) {
+            docnos[i] = starts[docids[i]] < 0 ? null : fill( spare, docids[i] ).utf8ToString();
+        }
+        return docnos;
+    }
+
+    /**
+     * @param docno A docno (external ID).
+     * @return The internal ID of the document; or -1 if not found.
+     */
+    public int findByDocno( String docno ) {
+        return find( new BytesRef( docno ), new BytesRef() );
+    }
+
+    /**
+     * @param docnos A list of docnos (external IDs).
+     * @return The internal IDs of the documents (-1 for those not found).
+     */
+    public int[] findByDocnos( String[] docnos ) {
+        int[] docids = new int[docnos.length];
+        BytesRef spare = new BytesRef();
+        for ( int i = 0; i < docnos.length; i++ ) {
+            docids[i] = find( new BytesRef( docnos[i] ), spare );
+        }
+        return docids;
+    }
+
+    private int find( BytesRef docno, BytesRef spare ) {
+        int slot = StringHelper.murmurhash3_x86_32( docno, 0 ) & mask;
+        int docid;
+        while ( ( docid = table[slot] ) >= 0 ) {
+            if ( fill( spare, docid ).bytesEquals( docno ) ) {
+                return docid;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        return -1;
+    }
+
+    private static class CacheKey {
+
+        private final IndexReader.CacheKey reader;
+        private final String field;
+
+        CacheKey( IndexReader.CacheKey reader, String field ) {
+            this.reader = reader;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( !( o instanceof CacheKey ) ) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return reader == other.reader && field.equals( other.field );
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode( reader ) + field.hashCode();
+        }
+
+    }
+
+}
@@ -0,0 +1,139 @@
+package edu.wisc.ischool.wiscir.utils;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, thread-safe latency histogram with log-linear buckets (similar to HdrHistogram with 2 significant
+ * digits): values below 128 have their own buckets; larger values are split by their highest bit into ranges of
+ * [2^e, 2^(e+1)), each divided into 64 equal buckets, so a recorded value is off by less than 1/64 (1.6%).
+ * <p>
+ * Values are in microseconds and a histogram takes about 30KB no matter how many values are recorded.
+ * Recording is one atomic increment (plus a few bit operations), so histograms can stay on in production.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXP = 40; // values up to 2^46 microseconds (about 2 years)
+
+    private final AtomicLongArray counts = new AtomicLongArray( ( MAX_EXP + 2 ) * SUB_COUNT );
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency in microseconds (negative values are recorded as 0).
+     */
+    public void record( long micros ) {
+        long v = Math.max( 0, micros );
+        counts.incrementAndGet( index( v ) );
+        count.incrementAndGet();
+        sum.addAndGet( v );
+        long m;
+        while ( v > ( m = max.get() ) && !max.compareAndSet( m, v ) ) {
+        }
+    }
+
+    /**
+     * Record the time elapsed since a System.nanoTime() value.
+     */
+    public void recordSince( long startNanos ) {
+        record( ( System.nanoTime() - startNanos ) / 1000 );
+    }
+
+    private static int index( long v ) {
+        if ( v < 2 * SUB_COUNT ) {
+            return (int) v;
+        }
+        int exp = Math.min( MAX_EXP, 63 - Long.numberOfLeadingZeros( v ) - SUB_BITS );
+        long sub = Math.min( 2 * SUB_COUNT - 1, v >>> exp );
+        return exp * SUB_COUNT + (int) sub;
+    }
+
+    /**
+     * @return The largest value in a bucket.
+     */
+    private static long highestValue( int index ) {
+        if ( index < 2 * SUB_COUNT ) {
+            return index;
+        }
+        int exp = index / SUB_COUNT - 1;
+        long sub = index % SUB_COUNT + SUB_COUNT;
+        return ( ( sub + 1 ) << exp ) - 1;
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return The mean of recorded values (microseconds); or 0 if there is none.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @return The maximum recorded value (microseconds).
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile A percentile between 0 and 100 (e.g., 99.9).
+     * @return The value (microseconds) at or below which the given percentage of recorded values fall
+     * (within the histogram's precision); or 0 if there is none.
+     */
+    public long getPercentile( double percentile ) {
+        long n = count.get();
+        if ( n == 0 ) {
+            return 0;
+        }
+        long rank = Math.max( 1, (long) Math.ceil( percentile / 100 * n ) );
+        long seen = 0;
+        for ( int i = 0; i < counts.length(); i++ ) {
+            seen += counts.get( i );
+            if ( seen >= rank ) {
+                return Math.min( highestValue( i ), max.get() );
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Remove all recorded values (values recorded concurrently may be partially kept).
+     */
+    public void reset() {
+        for ( int i = 0; i < counts.length(); i++ ) {
+            counts.set( i, 0 );
+        }
+        count.set( 0 );
+        sum.set( 0 );
+        max.set( 0 );
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT, "count=%d mean=%.1fus p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus",
+                getCount(), getMean(), getPercentile( 50 ), getPercentile( 90 ), getPercentile( 99 ), getPercentile( 99.9 ), getMax() );
+    }
+
+    /**
+     * @return The summary as a JSON object.
+     */
+    public String toJson() {
+        return String.format( Locale.ROOT, "{\"count\":%d,\"meanMicros\":%.1f,\"p50Micros\":%d,\"p90Micros\":%d,\"p99Micros\":%d,\"p999Micros\":%d,\"maxMicros\":%d}",
+                getCount(), getMean(), getPercentile( 50 ), getPercentile( 90 ), getPercentile( 99 ), getPercentile( 99.9 ), getMax() );
+    }
+
+}
@@ -1,9 +1,17 @@
 package edu.wisc.ischool.wiscir.utils;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
@@ -52,10 +60,35 @@ public class LuceneUtils {
     public static String getDocno( IndexReader index, String fieldDocno, int docid ) throws IOException {
         // This implementation is just for you to quickly understand how this works.
         // You should consider reuse the fieldset if you need to read docnos for a lot of documents.
+        // DocnoMapper caches the docid-docno mapping of an index reader if you need to do it millions of times.
         Set<String> fieldset = new HashSet<>();
         fieldset.add( fieldDocno );
         Document d = index.document( docid, fieldset );
         return d.get( fieldDocno );
     }
 
+    /**
+     * Build a bag-of-words query from plain text: a BooleanQuery of one SHOULD TermQuery per token produced by the
+     * analyzer (a repeated token gets repeated clauses). Unlike QueryParser (even with QueryParser.escape),
+     * no word is taken as an operator, so "NOT a drill" searches the three words.
+     *
+     * @param analyzer The analyzer for processing the text (it should be the same as the one used for indexing).
+     * @param field    The field to search.
+     * @param text     The query text.
+     * @return The query (a BooleanQuery without clauses, which matches nothing, if the text has no tokens).
+     * @throws IOException
+     */
+    public static Query textQuery( Analyzer analyzer, String field, String text ) throws IOException {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        try ( TokenStream ts = analyzer.tokenStream( field, text ) ) {
+            CharTermAttribute termAtt = ts.addAttribute( CharTermAttribute.class );
+            ts.reset();
+            while ( ts.incrementToken() ) {
+                builder.add( new TermQuery( new Term( field, termAtt.toString() ) ), BooleanClause.Occur.SHOULD );
+            }
+            ts.end();
+        }
+        return builder.build();
+    }
+
 }
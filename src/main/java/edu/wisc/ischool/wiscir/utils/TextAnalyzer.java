@@ -0,0 +1,272 @@
+package edu.wisc.ischool.wiscir.utils;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.en.KStemFilter;
+import org.apache.lucene.analysis.en.PorterStemFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The text processing options shared by indexing and searching:
+ * StandardTokenizer -&gt; LowerCaseFilter (optional) -&gt; StopFilter (optional) -&gt; KStemFilter/PorterStemFilter (optional).
+ * <p>
+ * Like any Lucene Analyzer, the TokenStreamComponents are created once per thread and reused.
+ * Stemming can optionally be memoized by a bounded per-thread LRU cache of token -&gt; stem,
+ * which saves most of the stemmer's CPU on natural language text (a few thousand frequent words make up most tokens).
+ * <p>
+ * To guarantee that queries are processed in the same way as the indexed documents, call {@link #saveTo(IndexWriter)}
+ * when building an index (it saves the options in the index's commit data), and use {@link #fromIndex(DirectoryReader)}
+ * to create the analyzer for searching the index.
+ *
+ * @author Jiepu Jiang (jiepu.jiang@wisc.edu)
+ * @version 2026-10-17
+ */
+public class TextAnalyzer extends Analyzer {
+
+    /**
+     * The key of the analyzer options in an index's commit data.
+     */
+    public static final String COMMIT_DATA_KEY = "wiscir.analyzer";
+
+    /**
+     * The default maximum number of cached stems per thread.
+     */
+    public static final int DEFAULT_STEM_CACHE_SIZE = 100000;
+
+    public enum Stemmer {
+        NONE, KROVETZ, PORTER
+    }
+
+    private final boolean lowercase;
+    private final boolean removeStopwords;
+    private final Stemmer stemmer;
+    private final int stemCacheSize;
+
+    /**
+     * @param lowercase       Whether to transform all tokens into lowercased ones.
+     * @param removeStopwords Whether to remove (English) stop words.
+     * @param stemmer         The stemmer to apply.
+     * @param stemCacheSize   The maximum number of cached stems per thread; 0 to disable the cache.
+     */
+    public TextAnalyzer( boolean lowercase, boolean removeStopwords, Stemmer stemmer, int stemCacheSize ) {
+        if ( stemCacheSize < 0 ) {
+            throw new IllegalArgumentException( "illegal stemCacheSize value: " + stemCacheSize + ", must be non-negative" );
+        }
+        this.lowercase = lowercase;
+        this.removeStopwords = removeStopwords;
+        this.stemmer = stemmer;
+        this.stemCacheSize = stemCacheSize;
+    }
+
+    /**
+     * The options used by the examples: lowercase, keep stop words, Krovetz stemmer, and a cache of 100,000 stems per thread.
+     */
+    public TextAnalyzer() {
+        this( true, false, Stemmer.KROVETZ, DEFAULT_STEM_CACHE_SIZE );
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents( String fieldName ) {
+        // Step 1: tokenization (Lucene's StandardTokenizer is suitable for most text retrieval occasions)
+        StandardTokenizer source = new StandardTokenizer();
+        TokenStream ts = source;
+        // Step 2: transforming all tokens into lowercased ones (recommended for the majority of the problems)
+        if ( lowercase ) {
+            ts = new LowerCaseFilter( ts );
+        }
+        // Step 3: whether to remove stop words (unnecessary to remove stop words unless you can't afford the extra disk space)
+        if ( removeStopwords ) {
+            ts = new StopFilter( ts, EnglishAnalyzer.ENGLISH_STOP_WORDS_SET );
+        }
+        // Step 4: whether to apply stemming (Krovetz is more common for IR research)
+        if ( stemmer != Stemmer.NONE ) {
+            StemCache cache = stemCacheSize > 0 ? new StemCache( stemCacheSize ) : null;
+            if ( cache != null ) {
+                ts = new StemCacheLookupFilter( ts, cache );
+            }
+            ts = stemmer == Stemmer.KROVETZ ? new KStemFilter( ts ) : new PorterStemFilter( ts );
+            if ( cache != null ) {
+                ts = new StemCacheUpdateFilter( ts, cache );
+            }
+        }
+        return new TokenStreamComponents( source, ts );
+    }
+
+    /**
+     * Save the options in the index writer's commit data (they are written at the next commit).
+     *
+     * @param writer An index writer.
+     */
+    public void saveTo( IndexWriter writer ) {
+        Map<String, String> data = new HashMap<>();
+        Iterable<Map.Entry<String, String>> current = writer.getLiveCommitData();
+        if ( current != null ) {
+            for ( Map.Entry<String, String> entry : current ) {
+                data.put( entry.getKey(), entry.getValue() );
+            }
+        }
+        data.put( COMMIT_DATA_KEY, options() );
+        writer.setLiveCommitData( data.entrySet() );
+    }
+
+    /**
+     * Create the analyzer with the options saved in an index (by {@link #saveTo(IndexWriter)}) and the default stem cache size.
+     *
+     * @param index An index reader.
+     * @return The analyzer used for building the index.
+     * @throws IOException              if the commit data cannot be read.
+     * @throws IllegalArgumentException if the index does not have saved analyzer options.
+     */
+    public static TextAnalyzer fromIndex( DirectoryReader index ) throws IOException {
+        return fromIndex( index, DEFAULT_STEM_CACHE_SIZE );
+    }
+
+    /**
+     * Create the analyzer with the options saved in an index (by {@link #saveTo(IndexWriter)}).
+     *
+     * @param index         An index reader.
+     * @param stemCacheSize The maximum number of cached stems per thread; 0 to disable the cache.
+     * @return The analyzer used for building the index.
+     * @throws IOException              if the commit data cannot be read.
+     * @throws IllegalArgumentException if the index does not have saved analyzer options.
+     */
+    public static TextAnalyzer fromIndex( DirectoryReader index, int stemCacheSize ) throws IOException {
+        String options = index.getIndexCommit().getUserData().get( COMMIT_DATA_KEY );
+        if ( options == null ) {
+            throw new IllegalArgumentException( "the index does not have saved analyzer options" );
+        }
+        Map<String, String> map = new HashMap<>();
+        for ( String option : options.split( "," ) ) {
+            String[] kv = option.split( "=", 2 );
+            map.put( kv[0], kv.length > 1 ? kv[1] : "" );
+        }
+        return new TextAnalyzer(
+                Boolean.parseBoolean( map.get( "lowercase" ) ),
+                Boolean.parseBoolean( map.get( "stopwords" ) ),
+                Stemmer.valueOf( map.get( "stemmer" ) ),
+                stemCacheSize
+        );
+    }
+
+    /**
+     * @return The options affecting the output tokens (the stem cache does not).
+     */
+    public String options() {
+        return "lowercase=" + lowercase + ",stopwords=" + removeStopwords + ",stemmer=" + stemmer;
+    }
+
+    @Override
+    public String toString() {
+        return "TextAnalyzer(" + options() + ",stemCacheSize=" + stemCacheSize + ")";
+    }
+
+    /**
+     * A bounded LRU map of token -&gt; stem, owned by one TokenStreamComponents (hence one thread).
+     */
+    private static class StemCache extends LinkedHashMap<String, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        // the original text of the current token if it was not found in the cache; otherwise null
+        private String pending;
+
+        // whether the lookup marked the current token as keyword (a mark set earlier in the chain is kept)
+        private boolean marked;
+
+        StemCache( int maxSize ) {
+            super( 16, 0.75f, true );
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, String> eldest ) {
+            return size() > maxSize;
+        }
+
+    }
+
+    /**
+     * Placed before the stemmer: replaces a cached token by its stem and marks it as keyword so that the stemmer skips it.
+     */
+    private static final class StemCacheLookupFilter extends TokenFilter {
+
+        private final CharTermAttribute termAtt = addAttribute( CharTermAttribute.class );
+        private final KeywordAttribute keywordAtt = addAttribute( KeywordAttribute.class );
+        private final StemCache cache;
+
+        StemCacheLookupFilter( TokenStream input, StemCache cache ) {
+            super( input );
+            this.cache = cache;
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if ( !input.incrementToken() ) {
+                return false;
+            }
+            cache.pending = null;
+            cache.marked = false;
+            if ( keywordAtt.isKeyword() ) {
+                return true;
+            }
+            String token = termAtt.toString();
+            String stem = cache.get( token );
+            if ( stem != null ) {
+                termAtt.setEmpty().append( stem );
+                keywordAtt.setKeyword( true );
+                cache.marked = true;
+            } else {
+                cache.pending = token;
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Placed after the stemmer: caches the stem of a token that missed the cache, and clears the keyword mark set by the lookup.
+     */
+    private static final class StemCacheUpdateFilter extends TokenFilter {
+
+        private final CharTermAttribute termAtt = addAttribute( CharTermAttribute.class );
+        private final KeywordAttribute keywordAtt = addAttribute( KeywordAttribute.class );
+        private final StemCache cache;
+
+        StemCacheUpdateFilter( TokenStream input, StemCache cache ) {
+            super( input );
+            this.cache = cache;
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if ( !input.incrementToken() ) {
+                return false;
+            }
+            if ( cache.pending != null ) {
+                cache.put( cache.pending, termAtt.toString() );
+                cache.pending = null;
+            } else if ( cache.marked ) {
+                keywordAtt.setKeyword( false );
+                cache.marked = false;
+            }
+            return true;
+        }
+
+    }
+
+}